@@ -0,0 +1,95 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.BitGrid;
+
+/**
+ * The default heuristic values a board by its open cells, its line potential and its holes.
+
+ * Line potential rewards rows and columns that are close to full, as they are the next lines to clear. A hole is an
+ * empty cell with no empty neighbour, which only the Dot can ever fill.
+ */
+public class DefaultHeuristic implements Heuristic {
+
+  /**
+   * Weight of each empty cell.
+   */
+  private final double openWeight;
+
+  /**
+   * Weight of the sum of the squared fill of every row and column.
+   */
+  private final double lineWeight;
+
+  /**
+   * Weight of each hole, normally negative.
+   */
+  private final double holeWeight;
+
+  /**
+   * Create the heuristic with the default weights.
+   */
+  public DefaultHeuristic() {
+    this(2.0, 0.5, -12.0);
+  }
+
+  /**
+   * Create the heuristic with the given weights.
+   *
+   * @param openWeight weight of each empty cell
+   * @param lineWeight weight of the squared fill of every row and column
+   * @param holeWeight weight of each hole
+   */
+  public DefaultHeuristic(double openWeight, double lineWeight, double holeWeight) {
+    this.openWeight = openWeight;
+    this.lineWeight = lineWeight;
+    this.holeWeight = holeWeight;
+  }
+
+  /**
+   * Value a board position.
+   *
+   * @param grid the board
+   * @return value of the position
+   */
+  @Override
+  public double evaluate(BitGrid grid) {
+    int cols = grid.getCols();
+    int rows = grid.getRows();
+    int open = cols * rows - grid.getOccupiedCount();
+
+    long lines = 0;
+    for (var y = 0; y < rows; y++) {
+      lines += (long) grid.getRowCount(y) * grid.getRowCount(y);
+    }
+    for (var x = 0; x < cols; x++) {
+      lines += (long) grid.getColumnCount(x) * grid.getColumnCount(x);
+    }
+
+    return openWeight * open + lineWeight * lines + holeWeight * countHoles(grid);
+  }
+
+  /**
+   * Count the empty cells whose neighbours are all occupied or off the board, a row at a time.
+   *
+   * @param grid the board
+   * @return number of holes
+   */
+  static int countHoles(BitGrid grid) {
+    int cols = grid.getCols();
+    int rows = grid.getRows();
+    long full = cols == 64 ? -1L : (1L << cols) - 1;
+    long edge = 1L << (cols - 1);
+
+    var holes = 0;
+    long above = full;
+    long row = grid.getRowBits(0);
+    for (var y = 0; y < rows; y++) {
+      long below = y + 1 < rows ? grid.getRowBits(y + 1) : full;
+      long blocked = (row << 1 | 1) & (row >>> 1 | edge) & above & below;
+      holes += Long.bitCount(~row & blocked & full);
+      above = row;
+      row = below;
+    }
+    return holes;
+  }
+}
@@ -0,0 +1,19 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.BitGrid;
+
+/**
+ * A heuristic values a board position for the Solver. Higher values are better.
+
+ * A heuristic is called for every position the search looks at, so it should not create objects.
+ */
+public interface Heuristic {
+
+  /**
+   * Value a board position.
+   *
+   * @param grid the board
+   * @return value of the position
+   */
+  double evaluate(BitGrid grid);
+}
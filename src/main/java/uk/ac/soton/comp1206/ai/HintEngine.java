@@ -0,0 +1,196 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.HintListener;
+import uk.ac.soton.comp1206.game.BitGrid;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+
+/**
+ * The HintEngine works out the recommended move for a position on a background thread, so the caller never waits for
+ * a search.
+
+ * Only the latest request matters: a new request cancels the one in flight, and a result is only delivered if no newer
+ * request has been made since. Results are kept in a transposition table, which may be shared with other searches, so
+ * asking again for a position already seen is answered straight away. Results are delivered through the callback
+ * executor, such as Platform::runLater.
+
+ * Given an Oracle, a 5x5 board is answered from the oracle's table instead, with no search at all.
+ */
+public class HintEngine {
+
+  private static final Logger logger = LogManager.getLogger(HintEngine.class);
+
+  /**
+   * The size of the transposition table made for a hint engine, as a power of 2.
+   */
+  private static final int TABLE_BITS = 16;
+
+  /**
+   * The worker running the searches.
+   */
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "Hint Worker");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Runs the listener when a result is ready.
+   */
+  private final Executor callbackExecutor;
+
+  /**
+   * The solver, only used on the worker thread.
+   */
+  private final Solver solver;
+
+  /**
+   * Positions already searched.
+   */
+  private final TranspositionTable table;
+
+  /**
+   * The oracle answering requests for 5x5 boards, or null to search them like any other board.
+   */
+  private Oracle oracle;
+
+  /**
+   * Counts requests, so results of older requests can be recognised and dropped.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * The search in flight, if any.
+   */
+  private Future<?> pending;
+
+  /**
+   * Create a new hint engine for boards of the given size.
+   *
+   * @param cols             number of columns
+   * @param rows             number of rows
+   * @param beamWidth        number of positions the solver keeps at each level
+   * @param depth            number of pieces the solver looks ahead
+   * @param callbackExecutor runs the listener when a result is ready
+   */
+  public HintEngine(int cols, int rows, int beamWidth, int depth, Executor callbackExecutor) {
+    this(cols, rows, beamWidth, depth, callbackExecutor, new TranspositionTable(TABLE_BITS));
+  }
+
+  /**
+   * Create a new hint engine for boards of the given size, keeping results in a transposition table.
+   *
+   * @param cols             number of columns
+   * @param rows             number of rows
+   * @param beamWidth        number of positions the solver keeps at each level
+   * @param depth            number of pieces the solver looks ahead
+   * @param callbackExecutor runs the listener when a result is ready
+   * @param table            positions already searched, which may be shared with other searches
+   */
+  public HintEngine(int cols, int rows, int beamWidth, int depth, Executor callbackExecutor,
+      TranspositionTable table) {
+    this.solver = new Solver(cols, rows, beamWidth, depth, new DefaultHeuristic(), table);
+    this.callbackExecutor = callbackExecutor;
+    this.table = table;
+  }
+
+  /**
+   * Ask for the recommended move for a position, cancelling any earlier request. The board is copied, so it may be
+   * changed as soon as this returns.
+   *
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @param listener       told the recommended move, unless a newer request is made first
+   */
+  public synchronized void request(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece,
+      HintListener listener) {
+    long request = generation.incrementAndGet();
+    cancelPending();
+
+    if (oracle != null && grid.getCols() == Oracle.SIZE && grid.getRows() == Oracle.SIZE) {
+      deliver(request, oracle.bestMove(grid, currentPiece, followingPiece), listener);
+      return;
+    }
+
+    int known = solver.lookup(grid, currentPiece, followingPiece);
+    if (known != Solver.NOT_FOUND) {
+      deliver(request, known, listener);
+      return;
+    }
+
+    var board = new BitGrid(grid.getCols(), grid.getRows());
+    board.copyFrom(grid);
+    pending = worker.submit(() -> {
+      int move = solver.bestMove(board, currentPiece, followingPiece);
+      if (!Thread.currentThread().isInterrupted()) {
+        deliver(request, move, listener);
+      }
+    });
+  }
+
+  /**
+   * Answer requests for 5x5 boards from an oracle rather than searching.
+   *
+   * @param oracle the oracle, or null to search every board
+   */
+  public synchronized void setOracle(Oracle oracle) {
+    this.oracle = oracle;
+  }
+
+  /**
+   * Cancel the request in flight, if any. Its result will not be delivered.
+   */
+  public synchronized void cancel() {
+    generation.incrementAndGet();
+    cancelPending();
+  }
+
+  /**
+   * Stop the worker. No more results are delivered.
+   */
+  public synchronized void shutdown() {
+    cancel();
+    worker.shutdownNow();
+    logger.info("Hint engine stopped");
+  }
+
+  private void cancelPending() {
+    if (pending != null) {
+      pending.cancel(true);
+      pending = null;
+    }
+  }
+
+  /**
+   * Deliver a result through the callback executor, if its request is still the latest.
+   *
+   * @param request  the number of the request
+   * @param move     the recommended move
+   * @param listener the listener to tell
+   */
+  private void deliver(long request, int move, HintListener listener) {
+    callbackExecutor.execute(() -> {
+      if (generation.get() == request) {
+        logger.info("Hint: {}", Move.toString(move));
+        listener.hintFound(move);
+      }
+    });
+  }
+
+  /**
+   * Get the transposition table results are kept in.
+   *
+   * @return the table
+   */
+  public TranspositionTable getTable() {
+    return table;
+  }
+}
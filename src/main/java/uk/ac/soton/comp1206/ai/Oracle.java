@@ -0,0 +1,156 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import uk.ac.soton.comp1206.game.BitGrid;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+
+/**
+ * The Oracle knows the value of every board of the 5x5 game under perfect play: the number of pieces that can be
+ * expected to be placed on it before getting stuck, when every piece is equally likely to be dealt. It is built ahead
+ * of time by OracleBuilder and read from a memory-mapped file, so valuing a board is a single read and the table is
+ * shared by every user. Values are stored as fixed point numbers of SCALE parts per piece, two bytes per board.
+
+ * A board is looked up by its occupancy, with cell (x, y) at bit y * 5 + x, as held by a BitGrid.
+ */
+public class Oracle {
+
+  /**
+   * The width and height of the board the oracle covers.
+   */
+  public static final int SIZE = 5;
+
+  /**
+   * The number of cells, and the number of boards, on that board.
+   */
+  public static final int CELLS = SIZE * SIZE;
+  public static final int BOARDS = 1 << CELLS;
+
+  /**
+   * Parts per piece of the stored values.
+   */
+  public static final int SCALE = 256;
+
+  /**
+   * The most rounds a table can be built with, which is the most pieces a value can count.
+   */
+  public static final int MAX_ROUNDS = Character.MAX_VALUE / SCALE;
+
+  /**
+   * The file starts with a header of the magic number, the version and the size of the board.
+   */
+  static final int MAGIC = 0x54524F31;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+
+  /**
+   * The value of every board, mapped from the file.
+   */
+  private final MappedByteBuffer table;
+
+  private Oracle(MappedByteBuffer table) {
+    this.table = table;
+  }
+
+  /**
+   * Map an oracle file read-only.
+   *
+   * @param path the file written by OracleBuilder
+   * @return the oracle
+   * @throws IOException if the file cannot be read or is not an oracle file
+   */
+  public static Oracle open(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_SIZE + (long) BOARDS * Character.BYTES) {
+        throw new IOException("Not an oracle file: " + path);
+      }
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != SIZE
+          || buffer.getInt(12) != SIZE) {
+        throw new IOException("Not an oracle file for a " + SIZE + "x" + SIZE + " board: " + path);
+      }
+      //The mapping stays valid once the channel is closed
+      return new Oracle(buffer);
+    }
+  }
+
+  /**
+   * Get the stored value of a board.
+   *
+   * @param board occupancy of the board, cell (x, y) at bit y * 5 + x
+   * @return expected number of pieces placed, in SCALE parts per piece
+   */
+  public int rawValue(int board) {
+    return table.getChar(HEADER_SIZE + board * Character.BYTES);
+  }
+
+  /**
+   * Get the value of a board.
+   *
+   * @param grid the board, which must be 5x5
+   * @return expected number of pieces placed
+   */
+  public double value(BitGrid grid) {
+    return (double) rawValue(occupancy(grid)) / SCALE;
+  }
+
+  /**
+   * Find the move that leaves the board with the highest value, preferring moves that clear more cells when values are
+   * equal.
+   *
+   * @param grid           the board, which must be 5x5
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece, which may be swapped in
+   * @return packed move, or Move.NONE if neither piece fits anywhere
+   */
+  public int bestMove(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    int board = occupancy(grid);
+    int best = Move.NONE;
+    long bestValue = -1;
+    for (var swap = 0; swap < 2; swap++) {
+      var piece = swap == 0 ? currentPiece : followingPiece;
+      for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+        var rotated = piece.rotated(rotations);
+        for (var y = 0; y < SIZE; y++) {
+          for (var x = 0; x < SIZE; x++) {
+            int cells = OracleBuilder.cellsCovered(rotated, x, y);
+            if (cells == 0 || (board & cells) != 0) {
+              continue;
+            }
+            int placed = board | cells;
+            int after = OracleBuilder.clearLines(placed);
+            long value = (long) rawValue(after) << 8 | Integer.bitCount(placed & ~after);
+            if (value > bestValue) {
+              bestValue = value;
+              best = Move.of(x, y, rotations, swap == 1);
+            }
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Read the occupancy of a 5x5 board as a single number.
+   *
+   * @param grid the board
+   * @return occupancy, cell (x, y) at bit y * 5 + x
+   */
+  private static int occupancy(BitGrid grid) {
+    if (grid.getCols() != SIZE || grid.getRows() != SIZE) {
+      throw new IllegalArgumentException("The oracle only covers " + SIZE + "x" + SIZE + " boards");
+    }
+    var board = 0;
+    for (var y = 0; y < SIZE; y++) {
+      board |= (int) grid.getRowBits(y) << (y * SIZE);
+    }
+    return board;
+  }
+}
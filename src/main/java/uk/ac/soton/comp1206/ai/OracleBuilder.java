@@ -0,0 +1,278 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.utility.CommandLine;
+
+/**
+ * Works out the value of every one of the 2^25 boards of the 5x5 game and writes it to an Oracle file.
+
+ * The value of a board is the number of pieces a player playing perfectly can expect to place on it before getting
+ * stuck, when every piece is equally likely to be dealt next. It is found by value iteration: after round k, each value
+ * is the expected number of pieces placed out of the next k, found from the values of the last round by trying every
+ * placement of every piece. Rounds stop once no value changes by more than the tolerance, or after a set number of
+ * rounds. Swapping pieces is not taken into account, as the following piece is not part of the board, so the values
+ * are a lower bound; Oracle.bestMove makes up for it by trying both pieces.
+
+ * Each round reads the values of the last round and writes a new set, and every thread writes its own range of boards,
+ * so boards are valued in parallel without locking.
+ */
+public class OracleBuilder {
+
+  private static final Logger logger = LogManager.getLogger(OracleBuilder.class);
+
+  private static final String USAGE = "OracleBuilder [--output FILE] [--threads T] [--rounds R] [--tolerance E]";
+
+  /**
+   * Boards valued by each task.
+   */
+  private static final int CHUNK = 1 << 12;
+
+  /**
+   * Every distinct set of cells each piece can cover on the board, in any rotation, indexed by piece.
+   */
+  private static final int[][] PLACEMENTS = buildPlacements();
+
+  /**
+   * Every row and column of the board, as sets of cells.
+   */
+  private static final int[] LINES = buildLines();
+
+  /**
+   * Number of threads to build on.
+   */
+  private final int parallelism;
+
+  /**
+   * Most rounds to run.
+   */
+  private final int rounds;
+
+  /**
+   * Largest change in any value for which rounds stop early.
+   */
+  private final double tolerance;
+
+  /**
+   * Create a new builder.
+   *
+   * @param parallelism number of threads to build on
+   * @param rounds      most rounds to run, up to Oracle.MAX_ROUNDS
+   * @param tolerance   largest change in any value for which rounds stop early
+   */
+  public OracleBuilder(int parallelism, int rounds, double tolerance) {
+    if (rounds < 1 || rounds > Oracle.MAX_ROUNDS) {
+      throw new IllegalArgumentException("Invalid number of rounds: " + rounds);
+    }
+    this.parallelism = parallelism;
+    this.rounds = rounds;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Work out the value of every board.
+   *
+   * @return expected pieces placed by board, where board bit y * 5 + x is cell (x, y)
+   */
+  public float[] build() {
+    //No pieces can be placed out of none
+    var values = new float[Oracle.BOARDS];
+    var next = new float[Oracle.BOARDS];
+
+    var pool = new ForkJoinPool(parallelism);
+    try {
+      for (var round = 1; round <= rounds; round++) {
+        long start = System.nanoTime();
+        var last = values;
+        var updated = next;
+        double change = pool.submit(() -> IntStream.range(0, Oracle.BOARDS / CHUNK).parallel()
+            .mapToDouble(chunk -> valueChunk(chunk * CHUNK, last, updated)).max().orElse(0)).get();
+
+        logger.info("Round {}: largest change {} in {} ms", round, change, (System.nanoTime() - start) / 1_000_000);
+        next = values;
+        values = updated;
+        if (change <= tolerance) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Oracle build interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Oracle build failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    return values;
+  }
+
+  /**
+   * Value a range of boards from the values of the last round.
+   *
+   * @param first   first board of the range
+   * @param last    values of the last round
+   * @param updated values of this round, written for the range only
+   * @return largest change in a value in the range
+   */
+  private static double valueChunk(int first, float[] last, float[] updated) {
+    double change = 0;
+    for (int board = first; board < first + CHUNK; board++) {
+      var total = 0f;
+      for (int[] placements : PLACEMENTS) {
+        var best = -1f;
+        for (int cells : placements) {
+          if ((board & cells) == 0) {
+            best = Math.max(best, last[clearLines(board | cells)]);
+          }
+        }
+        if (best >= 0) {
+          total += 1 + best;
+        }
+      }
+      var value = total / PLACEMENTS.length;
+      change = Math.max(change, Math.abs(value - last[board]));
+      updated[board] = value;
+    }
+    return change;
+  }
+
+  /**
+   * Empty every full row and column of a board.
+   *
+   * @param board the board
+   * @return the board with its full lines cleared
+   */
+  static int clearLines(int board) {
+    var cleared = 0;
+    for (int line : LINES) {
+      if ((board & line) == line) {
+        cleared |= line;
+      }
+    }
+    return board & ~cleared;
+  }
+
+  /**
+   * Work out every distinct set of cells each piece can cover.
+   *
+   * @return sets of cells by piece
+   */
+  private static int[][] buildPlacements() {
+    var placements = new int[GamePiece.PIECES][];
+    for (var piece = 0; piece < GamePiece.PIECES; piece++) {
+      var type = piece;
+      placements[piece] = IntStream.range(0, GamePiece.ROTATIONS * Oracle.CELLS)
+          .map(i -> cellsCovered(GamePiece.createPiece(type, i / Oracle.CELLS), i % Oracle.CELLS % Oracle.SIZE,
+              i % Oracle.CELLS / Oracle.SIZE))
+          .filter(cells -> cells != 0)
+          .distinct()
+          .toArray();
+    }
+    return placements;
+  }
+
+  /**
+   * Work out the cells a piece covers with its centre at a position.
+   *
+   * @param piece the piece
+   * @param x     column of the centre
+   * @param y     row of the centre
+   * @return the set of cells, or 0 if part of the piece would be off the board
+   */
+  static int cellsCovered(GamePiece piece, int x, int y) {
+    var shape = piece.getShape();
+    var cells = 0;
+    for (var i = 0; i < shape.size(); i++) {
+      int cellX = x + shape.getCellX(i);
+      int cellY = y + shape.getCellY(i);
+      if (cellX < 0 || cellX >= Oracle.SIZE || cellY < 0 || cellY >= Oracle.SIZE) {
+        return 0;
+      }
+      cells |= 1 << (cellY * Oracle.SIZE + cellX);
+    }
+    return cells;
+  }
+
+  private static int[] buildLines() {
+    var lines = new int[Oracle.SIZE * 2];
+    for (var i = 0; i < Oracle.SIZE; i++) {
+      for (var j = 0; j < Oracle.SIZE; j++) {
+        lines[i] |= 1 << (i * Oracle.SIZE + j);
+        lines[Oracle.SIZE + i] |= 1 << (j * Oracle.SIZE + i);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Write a table of values to an Oracle file, as fixed point numbers of Oracle.SCALE parts per piece.
+   *
+   * @param values expected pieces placed by board
+   * @param path   file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(float[] values, Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      var header = ByteBuffer.allocate(Oracle.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+      header.putInt(Oracle.MAGIC).putInt(Oracle.VERSION).putInt(Oracle.SIZE).putInt(Oracle.SIZE).flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      //Write through a buffer of a chunk at a time rather than copying the whole table
+      var body = ByteBuffer.allocateDirect(CHUNK * Character.BYTES).order(ByteOrder.BIG_ENDIAN);
+      for (var board = 0; board < values.length; board++) {
+        body.putChar((char) Math.min(Math.round(values[board] * Oracle.SCALE), Character.MAX_VALUE));
+        if (!body.hasRemaining() || board == values.length - 1) {
+          body.flip();
+          while (body.hasRemaining()) {
+            channel.write(body);
+          }
+          body.clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * Build the oracle file from the command line.
+
+   * Options: --output FILE, --threads T, --rounds R (default 64), --tolerance E.
+   *
+   * @param args commandline arguments
+   * @throws IOException if the file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    var output = Path.of("oracle.bin");
+    int threads = Runtime.getRuntime().availableProcessors();
+    int rounds = 64;
+    double tolerance = 1e-3;
+
+    var arguments = new CommandLine(args, USAGE);
+    while (arguments.hasNext()) {
+      switch (arguments.next()) {
+        case "--output" -> output = Path.of(arguments.value());
+        case "--threads" -> threads = Integer.parseInt(arguments.value());
+        case "--rounds" -> rounds = Integer.parseInt(arguments.value());
+        case "--tolerance" -> tolerance = Double.parseDouble(arguments.value());
+        default -> throw arguments.unknown();
+      }
+    }
+
+    logger.info("Building oracle for {} boards with {} threads", Oracle.BOARDS, threads);
+    long start = System.nanoTime();
+    var values = new OracleBuilder(threads, rounds, tolerance).build();
+    write(values, output);
+    logger.info("Wrote {} in {} s", output, (System.nanoTime() - start) / 1_000_000_000);
+  }
+}
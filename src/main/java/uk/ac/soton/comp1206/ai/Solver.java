@@ -0,0 +1,474 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import uk.ac.soton.comp1206.game.BitGrid;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.Symmetry;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * The Solver finds the best move for a position with a beam search over every placement of the current and following
+ * piece in every rotation.
+
+ * The search works on BitGrid boards only. Every board it needs is created with the solver, so a search does not
+ * create any objects. A solver is not thread safe; use one per thread. A search gives up early, returning Move.NONE,
+ * if its thread is interrupted.
+
+ * A solver may be given a transposition table, which can be shared with other solvers on other threads. The best move
+ * of every position searched is kept in it, as is the value of every board reached at depth 3 for each piece, so
+ * positions reached again are not searched again. Positions searched are stored in their canonical form, so a turned
+ * or mirrored copy of a position searched before is found as well.
+
+ * The depth sets how many pieces are looked ahead:
+ * 1 plays the current piece, or the following piece after a swap.
+ * 2 also plays the piece that is left over, as it will be the next current piece.
+ * 3 also values each final position by the best placement of every possible next piece, averaged over all pieces.
+ */
+public class Solver {
+
+  /**
+   * The deepest search supported. Only two pieces are known, and the third is averaged over.
+   */
+  public static final int MAX_DEPTH = 3;
+
+  /**
+   * Taken off the value of a position when a known piece cannot be played in it.
+   */
+  private static final double STUCK_PENALTY = 1000;
+
+  /**
+   * Returned by lookup when a position is not in the transposition table.
+   */
+  public static final int NOT_FOUND = -2;
+
+  /**
+   * Values each position reached.
+   */
+  private final Heuristic heuristic;
+
+  /**
+   * The number of positions kept at each level of the search.
+   */
+  private final int beamWidth;
+
+  /**
+   * The number of pieces looked ahead.
+   */
+  private final int depth;
+
+  /**
+   * The positions kept at the current level, and their values.
+   */
+  private BitGrid[] beam;
+  private double[] beamValue;
+  private double[] beamReward;
+  private int[] beamMove;
+  private GamePiece[] beamHold;
+  private int beamSize;
+
+  /**
+   * The positions being gathered for the next level, and their values.
+   */
+  private BitGrid[] next;
+  private double[] nextValue;
+  private double[] nextReward;
+  private int[] nextMove;
+  private GamePiece[] nextHold;
+  private int nextSize;
+
+  /**
+   * The slot in next holding the lowest value, replaced first once next is full.
+   */
+  private int worst;
+
+  /**
+   * Scratch board for trying a placement.
+   */
+  private final BitGrid work;
+
+  /**
+   * Scratch set of cleared cells.
+   */
+  private final long[] cleared;
+
+  /**
+   * The value of the best move found by the last search.
+   */
+  private double bestValue;
+
+  /**
+   * Positions already searched, or null to search every position.
+   */
+  private final TranspositionTable table;
+
+  /**
+   * Create a new solver for boards of the given size.
+   *
+   * @param cols      number of columns
+   * @param rows      number of rows
+   * @param beamWidth number of positions kept at each level of the search
+   * @param depth     number of pieces looked ahead, from 1 to MAX_DEPTH
+   * @param heuristic values each position reached
+   */
+  public Solver(int cols, int rows, int beamWidth, int depth, Heuristic heuristic) {
+    this(cols, rows, beamWidth, depth, heuristic, null);
+  }
+
+  /**
+   * Create a new solver for boards of the given size, keeping results in a transposition table.
+   *
+   * @param cols      number of columns
+   * @param rows      number of rows
+   * @param beamWidth number of positions kept at each level of the search
+   * @param depth     number of pieces looked ahead, from 1 to MAX_DEPTH
+   * @param heuristic values each position reached
+   * @param table     positions already searched, or null to search every position
+   */
+  public Solver(int cols, int rows, int beamWidth, int depth, Heuristic heuristic, TranspositionTable table) {
+    if (beamWidth < 1 || depth < 1 || depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Invalid beam width " + beamWidth + " or depth " + depth);
+    }
+    this.heuristic = heuristic;
+    this.beamWidth = beamWidth;
+    this.depth = depth;
+    this.table = table;
+
+    beam = new BitGrid[beamWidth];
+    next = new BitGrid[beamWidth];
+    for (var i = 0; i < beamWidth; i++) {
+      beam[i] = new BitGrid(cols, rows);
+      next[i] = new BitGrid(cols, rows);
+    }
+    beamValue = new double[beamWidth];
+    beamReward = new double[beamWidth];
+    beamMove = new int[beamWidth];
+    beamHold = new GamePiece[beamWidth];
+    nextValue = new double[beamWidth];
+    nextReward = new double[beamWidth];
+    nextMove = new int[beamWidth];
+    nextHold = new GamePiece[beamWidth];
+
+    work = new BitGrid(cols, rows);
+    cleared = work.newCellSet();
+  }
+
+  /**
+   * Find the best move for a position.
+   *
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece, which may be swapped in
+   * @return packed move as made by Move.of, or Move.NONE if neither piece fits anywhere
+   */
+  public int bestMove(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    long key = 0;
+    var symmetry = 0;
+    if (table != null) {
+      symmetry = Symmetry.canonicalTransform(grid, currentPiece, followingPiece);
+      key = Symmetry.transformedHash(symmetry, grid, currentPiece, followingPiece);
+      long entry = table.probe(key);
+      if (entry != TranspositionTable.MISS && TranspositionTable.depth(entry) >= depth) {
+        bestValue = TranspositionTable.value(entry);
+        return fromCanonical(symmetry, entry, grid, currentPiece, followingPiece);
+      }
+    }
+
+    //The first level plays either known piece, keeping the other one for the next level
+    nextSize = 0;
+    expand(grid, 0, Move.NONE, currentPiece, followingPiece, false);
+    expand(grid, 0, Move.NONE, followingPiece, currentPiece, true);
+    if (nextSize == 0) {
+      bestValue = Double.NEGATIVE_INFINITY;
+      if (table != null) {
+        table.store(key, bestValue, Move.NONE, depth);
+      }
+      return Move.NONE;
+    }
+    swapLevels();
+
+    //The second level plays the piece that was kept
+    if (depth >= 2) {
+      nextSize = 0;
+      for (var i = 0; i < beamSize; i++) {
+        if (Thread.currentThread().isInterrupted()) {
+          return Move.NONE;
+        }
+        int before = nextSize;
+        expand(beam[i], beamReward[i], beamMove[i], beamHold[i], null, false);
+        if (nextSize == before) {
+          offer(beam[i], beamValue[i] - STUCK_PENALTY, beamReward[i], beamMove[i], null);
+        }
+      }
+      swapLevels();
+    }
+
+    //The last level averages the best placement of every piece that could come next
+    if (depth >= 3) {
+      for (var i = 0; i < beamSize; i++) {
+        if (Thread.currentThread().isInterrupted()) {
+          return Move.NONE;
+        }
+        double total = 0;
+        for (var piece = 0; piece < GamePiece.PIECES; piece++) {
+          total += bestPlacementValue(beam[i], GamePiece.createPiece(piece));
+        }
+        beamValue[i] = beamReward[i] + total / GamePiece.PIECES;
+      }
+    }
+
+    var best = 0;
+    for (var i = 1; i < beamSize; i++) {
+      if (beamValue[i] > beamValue[best]) {
+        best = i;
+      }
+    }
+    bestValue = beamValue[best];
+    if (table != null) {
+      table.store(key, bestValue, Symmetry.transformMove(symmetry, beamMove[best], currentPiece, followingPiece,
+          grid.getCols(), grid.getRows()), depth);
+    }
+    return beamMove[best];
+  }
+
+  /**
+   * Look up the best move for a position in the transposition table, without searching. Unlike bestMove this may be
+   * called from any thread.
+   *
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return packed move, Move.NONE if neither piece fits anywhere, or NOT_FOUND if the position has not been searched
+   *     to the depth of this solver
+   */
+  public int lookup(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    if (table == null) {
+      return NOT_FOUND;
+    }
+    int symmetry = Symmetry.canonicalTransform(grid, currentPiece, followingPiece);
+    long entry = table.probe(Symmetry.transformedHash(symmetry, grid, currentPiece, followingPiece));
+    if (entry == TranspositionTable.MISS || TranspositionTable.depth(entry) < depth) {
+      return NOT_FOUND;
+    }
+    return fromCanonical(symmetry, entry, grid, currentPiece, followingPiece);
+  }
+
+  /**
+   * Turn the move stored for the canonical form of a position back into the move for the position itself.
+   *
+   * @param symmetry       the symmetry giving the canonical form
+   * @param entry          the entry of the canonical form
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return packed move
+   */
+  private static int fromCanonical(int symmetry, long entry, BitGrid grid, GamePiece currentPiece,
+      GamePiece followingPiece) {
+    return Symmetry.transformMove(Symmetry.inverse(symmetry), TranspositionTable.move(entry),
+        Symmetry.transform(symmetry, currentPiece), Symmetry.transform(symmetry, followingPiece), grid.getCols(),
+        grid.getRows());
+  }
+
+  /**
+   * Try every placement of a piece in every distinct rotation on a board, offering each result to the next level.
+   *
+   * @param board    the board to play on
+   * @param reward   points scored on the way to this board
+   * @param rootMove the first move on the way to this board, or Move.NONE at the first level
+   * @param piece    the piece to play
+   * @param hold     the piece kept for the next level
+   * @param swap     true if the piece was swapped in
+   */
+  private void expand(BitGrid board, double reward, int rootMove, GamePiece piece, GamePiece hold, boolean swap) {
+    int cols = board.getCols();
+    for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+      if (isRepeatedRotation(piece, rotations)) {
+        continue;
+      }
+      var rotated = piece.rotated(rotations);
+      long[] legal = board.getLegalPlacements(rotated);
+      for (var word = 0; word < legal.length; word++) {
+        for (long bits = legal[word]; bits != 0; bits &= bits - 1) {
+          int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+          int x = index % cols;
+          int y = index / cols;
+          double points = play(board, rotated, x, y);
+          double value = reward + points + heuristic.evaluate(work);
+          int move = rootMove == Move.NONE ? Move.of(x, y, rotations, swap) : rootMove;
+          offer(work, value, reward + points, move, hold);
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the best value any placement of a piece reaches from a board.
+   *
+   * @param board the board to play on
+   * @param piece the piece to play
+   * @return the best value, or the value of the board less the stuck penalty if the piece does not fit
+   */
+  private double bestPlacementValue(BitGrid board, GamePiece piece) {
+    long key = 0;
+    if (table != null) {
+      key = Zobrist.position(board.getOccupancyHash(), piece);
+      long entry = table.probe(key);
+      if (entry != TranspositionTable.MISS) {
+        return TranspositionTable.value(entry);
+      }
+    }
+
+    double best = Double.NEGATIVE_INFINITY;
+    for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+      if (isRepeatedRotation(piece, rotations)) {
+        continue;
+      }
+      var rotated = piece.rotated(rotations);
+      long[] legal = board.getLegalPlacements(rotated);
+      for (var word = 0; word < legal.length; word++) {
+        for (long bits = legal[word]; bits != 0; bits &= bits - 1) {
+          int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+          double points = play(board, rotated, index % board.getCols(), index / board.getCols());
+          best = Math.max(best, points + heuristic.evaluate(work));
+        }
+      }
+    }
+    if (best == Double.NEGATIVE_INFINITY) {
+      best = heuristic.evaluate(board) - STUCK_PENALTY;
+    }
+    if (table != null) {
+      table.store(key, best, Move.NONE, 1);
+    }
+    return best;
+  }
+
+  /**
+   * Play a piece on a copy of a board held in the work board, and clear any full lines.
+   *
+   * @param board the board to copy
+   * @param piece the piece to play
+   * @param x     column of the centre
+   * @param y     row of the centre
+   * @return points scored by the lines cleared, before any multiplier
+   */
+  private double play(BitGrid board, GamePiece piece, int x, int y) {
+    work.copyFrom(board);
+    work.playPiece(piece, x, y);
+    Arrays.fill(cleared, 0L);
+    int lines = work.findFullLines(piece, x, y, cleared);
+    if (lines == 0) {
+      return 0;
+    }
+    return lines * work.clearCells(cleared) * 10;
+  }
+
+  /**
+   * Check whether a rotation of a piece has the same shape as a smaller rotation, so it need not be tried again.
+   *
+   * @param piece     the piece
+   * @param rotations the rotation to check
+   * @return true if an earlier rotation has the same shape
+   */
+  private static boolean isRepeatedRotation(GamePiece piece, int rotations) {
+    int mask = piece.rotated(rotations).getShape().getMask();
+    for (var earlier = 0; earlier < rotations; earlier++) {
+      if (piece.rotated(earlier).getShape().getMask() == mask) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Offer a position to the next level. It is kept if there is room, or if it beats the worst position kept.
+   *
+   * @param board  the position
+   * @param value  value of the position
+   * @param reward points scored on the way to the position
+   * @param move   first move on the way to the position
+   * @param hold   piece kept for the next level
+   */
+  private void offer(BitGrid board, double value, double reward, int move, GamePiece hold) {
+    int slot;
+    if (nextSize < beamWidth) {
+      slot = nextSize++;
+    } else if (value > nextValue[worst]) {
+      slot = worst;
+    } else {
+      return;
+    }
+    next[slot].copyFrom(board);
+    nextValue[slot] = value;
+    nextReward[slot] = reward;
+    nextMove[slot] = move;
+    nextHold[slot] = hold;
+
+    worst = 0;
+    for (var i = 1; i < nextSize; i++) {
+      if (nextValue[i] < nextValue[worst]) {
+        worst = i;
+      }
+    }
+  }
+
+  /**
+   * Make the positions gathered for the next level the current level.
+   */
+  private void swapLevels() {
+    var boards = beam;
+    beam = next;
+    next = boards;
+    var values = beamValue;
+    beamValue = nextValue;
+    nextValue = values;
+    var rewards = beamReward;
+    beamReward = nextReward;
+    nextReward = rewards;
+    var moves = beamMove;
+    beamMove = nextMove;
+    nextMove = moves;
+    var holds = beamHold;
+    beamHold = nextHold;
+    nextHold = holds;
+    beamSize = nextSize;
+    nextSize = 0;
+    worst = 0;
+  }
+
+  /**
+   * Get the value of the best move found by the last search.
+   *
+   * @return value, or negative infinity if there was no move
+   */
+  public double getBestValue() {
+    return bestValue;
+  }
+
+  /**
+   * Get the number of positions kept at each level of the search.
+   *
+   * @return beam width
+   */
+  public int getBeamWidth() {
+    return beamWidth;
+  }
+
+  /**
+   * Get the transposition table results are kept in.
+   *
+   * @return the table, or null if there is none
+   */
+  public TranspositionTable getTable() {
+    return table;
+  }
+
+  /**
+   * Get the number of pieces looked ahead.
+   *
+   * @return depth
+   */
+  public int getDepth() {
+    return depth;
+  }
+}
@@ -0,0 +1,177 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import uk.ac.soton.comp1206.game.Move;
+
+/**
+ * A fixed-size table of positions already searched, keyed by position hash as made by Zobrist.position. Each entry
+ * holds the value of the position, the best move found and the depth it was searched to.
+
+ * The table can be shared by any number of threads without locking. An entry is two longs: the data, and the key
+ * XORed with the data. A reader only accepts an entry if the two agree, so an entry torn by two threads writing at once
+ * reads as a miss rather than as wrong data. When two positions want the same slot, the one searched deeper is kept.
+ */
+public class TranspositionTable {
+
+  /**
+   * Returned by probe when the position is not in the table.
+   */
+  public static final long MISS = 0;
+
+  /**
+   * Two longs per entry: the key XORed with the data, then the data.
+   */
+  private final AtomicLongArray entries;
+
+  /**
+   * Masks a hash down to a slot.
+   */
+  private final int mask;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder stores = new LongAdder();
+
+  /**
+   * Create a new empty table.
+   *
+   * @param sizeBits the table holds 2 to the power of this many entries, 16 bytes each
+   */
+  public TranspositionTable(int sizeBits) {
+    if (sizeBits < 1 || sizeBits > 28) {
+      throw new IllegalArgumentException("Invalid table size: 2^" + sizeBits);
+    }
+    this.entries = new AtomicLongArray(2 << sizeBits);
+    this.mask = (1 << sizeBits) - 1;
+  }
+
+  /**
+   * Look up a position.
+   *
+   * @param key hash of the position
+   * @return the entry, to be read with value, move and depth, or MISS
+   */
+  public long probe(long key) {
+    int slot = slot(key);
+    long data = entries.get(slot + 1);
+    if (data != MISS && (entries.get(slot) ^ data) == key) {
+      hits.increment();
+      return data;
+    }
+    misses.increment();
+    return MISS;
+  }
+
+  /**
+   * Store the result of searching a position. An entry for another position searched deeper is not replaced.
+   *
+   * @param key   hash of the position
+   * @param value value of the position
+   * @param move  best move found, or Move.NONE
+   * @param depth depth searched to, from 1 to 255
+   */
+  public void store(long key, double value, int move, int depth) {
+    int slot = slot(key);
+    long old = entries.get(slot + 1);
+    if (old != MISS && depth(old) > depth && (entries.get(slot) ^ old) != key) {
+      return;
+    }
+    long data = (long) depth << 52 | (long) ((move + 1) & 0xFFFFF) << 32
+        | Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL;
+    entries.set(slot, key ^ data);
+    entries.set(slot + 1, data);
+    stores.increment();
+  }
+
+  /**
+   * Empty the table and reset the counters.
+   */
+  public void clear() {
+    for (var i = 0; i < entries.length(); i++) {
+      entries.set(i, 0);
+    }
+    hits.reset();
+    misses.reset();
+    stores.reset();
+  }
+
+  private int slot(long key) {
+    return ((int) (key ^ (key >>> 32)) & mask) << 1;
+  }
+
+  /**
+   * Get the value held in an entry.
+   *
+   * @param entry entry returned by probe
+   * @return value of the position
+   */
+  public static double value(long entry) {
+    return Float.intBitsToFloat((int) entry);
+  }
+
+  /**
+   * Get the best move held in an entry.
+   *
+   * @param entry entry returned by probe
+   * @return packed move, or Move.NONE
+   */
+  public static int move(long entry) {
+    int stored = (int) (entry >>> 32) & 0xFFFFF;
+    return stored == 0 ? Move.NONE : stored - 1;
+  }
+
+  /**
+   * Get the depth held in an entry.
+   *
+   * @param entry entry returned by probe
+   * @return depth the position was searched to
+   */
+  public static int depth(long entry) {
+    return (int) (entry >>> 52);
+  }
+
+  /**
+   * Get the number of entries the table holds.
+   *
+   * @return capacity
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Get the number of lookups that found their position.
+   *
+   * @return hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of lookups that did not find their position.
+   *
+   * @return misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the number of results stored.
+   *
+   * @return stores
+   */
+  public long getStores() {
+    return stores.sum();
+  }
+
+  @Override
+  public String toString() {
+    long hit = getHits();
+    long total = hit + getMisses();
+    return String.format("Transposition table: %d entries, %d hits, %d misses (%.1f%% hit rate), %d stores",
+        getCapacity(), hit, total - hit, total == 0 ? 0.0 : 100.0 * hit / total, getStores());
+  }
+}
@@ -0,0 +1,189 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+import javafx.stage.Screen;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Block Sprites are every look a block of one size can have, painted once into a single image. Painting a block is
+ * then a single drawImage from the sheet, rather than the fills, polygon and strokes of painting it afresh.
+
+ * A sheet holds a sprite for every colour, in every combination of the hover effect, the centre dot and the hint
+ * highlight. Sheets are painted at the output scale of the screen so they stay sharp, and are kept for the few block
+ * sizes most recently used; a new sheet is only painted when the block size or the output scale changes. Sheets are
+ * only made and used on the JavaFX thread.
+ */
+final class BlockSprites {
+
+  private static final Logger logger = LogManager.getLogger(BlockSprites.class);
+
+  /**
+   * Flags for the effects painted over a block.
+   */
+  static final int HOVER = 1;
+  static final int CENTRE = 1 << 1;
+  static final int HINT = 1 << 2;
+
+  /**
+   * The number of combinations of effects.
+   */
+  private static final int VARIANTS = 1 << 3;
+
+  /**
+   * The most sheets kept at once.
+   */
+  private static final int MAX_SHEETS = 4;
+
+  /**
+   * Space left around each sprite on the sheet, so the border of one sprite cannot spill into the next.
+   */
+  private static final int GUTTER = 1;
+
+  /**
+   * Sheets by block size and scale, least recently used first.
+   */
+  private static final Map<Key, BlockSprites> sheets = new LinkedHashMap<>(MAX_SHEETS, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, BlockSprites> eldest) {
+      return size() > MAX_SHEETS;
+    }
+  };
+
+  private record Key(double width, double height, double scale) {
+  }
+
+  private final double width;
+  private final double height;
+
+  /**
+   * The output scale the sheet was painted at.
+   */
+  private final double scale;
+
+  /**
+   * The distance between sprites on the sheet, before scaling.
+   */
+  private final double pitchX;
+  private final double pitchY;
+
+  private final WritableImage sheet;
+
+  private BlockSprites(double width, double height, double scale) {
+    this.width = width;
+    this.height = height;
+    this.scale = scale;
+    this.pitchX = Math.ceil(width) + 2 * GUTTER;
+    this.pitchY = Math.ceil(height) + 2 * GUTTER;
+
+    var canvas = new Canvas(pitchX * GameBlock.COLOURS.length, pitchY * VARIANTS);
+    var graphicsContext = canvas.getGraphicsContext2D();
+    for (var variant = 0; variant < VARIANTS; variant++) {
+      for (var value = 0; value < GameBlock.COLOURS.length; value++) {
+        double left = value * pitchX + GUTTER;
+        double top = variant * pitchY + GUTTER;
+        graphicsContext.save();
+        graphicsContext.beginPath();
+        graphicsContext.rect(left, top, width, height);
+        graphicsContext.clip();
+        paint(graphicsContext, value, variant, left, top);
+        graphicsContext.restore();
+      }
+    }
+
+    var parameters = new SnapshotParameters();
+    parameters.setFill(Color.TRANSPARENT);
+    parameters.setTransform(new Scale(scale, scale));
+    sheet = canvas.snapshot(parameters, null);
+    logger.info("Painted block sprites for {} x {} at scale {}", width, height, scale);
+  }
+
+  /**
+   * Get the sheet for blocks of a size, painting it if it is not kept already.
+   *
+   * @param width  width of a block
+   * @param height height of a block
+   * @param scale  output scale to paint at
+   * @return the sheet
+   */
+  static BlockSprites get(double width, double height, double scale) {
+    return sheets.computeIfAbsent(new Key(width, height, scale), key -> new BlockSprites(width, height, scale));
+  }
+
+  /**
+   * Get the sheet for blocks of a size shown on a node, at the output scale of its window.
+   *
+   * @param current the sheet used before, kept if it still fits, or null
+   * @param node    the node the blocks are painted on
+   * @param width   width of a block
+   * @param height  height of a block
+   * @return the sheet
+   */
+  static BlockSprites forNode(BlockSprites current, Node node, double width, double height) {
+    double scale = outputScale(node);
+    if (current != null && current.width == width && current.height == height && current.scale == scale) {
+      return current;
+    }
+    return get(width, height, scale);
+  }
+
+  /**
+   * Work out the output scale of the window a node is shown in, or of the main screen if it is not shown yet.
+   *
+   * @param node the node
+   * @return the output scale
+   */
+  private static double outputScale(Node node) {
+    var scene = node.getScene();
+    if (scene != null && scene.getWindow() != null) {
+      return scene.getWindow().getOutputScaleX();
+    }
+    return Screen.getPrimary().getOutputScaleX();
+  }
+
+  /**
+   * Paint a block and its effects the long way, as it appears on the sheet.
+   */
+  private void paint(GraphicsContext graphicsContext, int value, int variant, double left, double top) {
+    if (value == 0) {
+      GameBlock.paintEmpty(graphicsContext, left, top, width, height);
+    } else {
+      GameBlock.paintColor(graphicsContext, GameBlock.COLOURS[value], left, top, width, height);
+    }
+    if ((variant & CENTRE) != 0) {
+      graphicsContext.setFill(Color.color(1, 1, 1, 0.6));
+      graphicsContext.fillOval(left + width / 4, top + height / 4, width / 2, height / 2);
+    }
+    if ((variant & HOVER) != 0) {
+      graphicsContext.setFill(Color.rgb(204, 204, 204, 0.4));
+      graphicsContext.fillRect(left, top, width, height);
+    }
+    if ((variant & HINT) != 0) {
+      GameBlock.paintHint(graphicsContext, left, top, width, height);
+    }
+  }
+
+  /**
+   * Paint a block, replacing whatever was painted there before.
+   *
+   * @param graphicsContext where to paint
+   * @param value           the colour of the block, or 0 for empty
+   * @param variant         the effects painted over the block
+   * @param left            left edge of the block
+   * @param top             top edge of the block
+   */
+  void draw(GraphicsContext graphicsContext, int value, int variant, double left, double top) {
+    //Sprites are partly see-through, so the block is cleared first rather than painted over
+    graphicsContext.clearRect(left, top, width, height);
+    graphicsContext.drawImage(sheet, (value * pitchX + GUTTER) * scale, (variant * pitchY + GUTTER) * scale,
+        width * scale, height * scale, left, top, width, height);
+  }
+}
@@ -0,0 +1,71 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.HashSet;
+import javafx.scene.Node;
+import uk.ac.soton.comp1206.event.CellClickedListener;
+import uk.ac.soton.comp1206.event.RightClickedListener;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A BoardView is a visual component showing the main game board. The GameBoard uses a GameBlock for every cell, which
+ * suits small boards, and the CanvasBoard draws every cell onto a single canvas, which suits large boards.
+ */
+public interface BoardView {
+
+  /**
+   * Get the node to add to the scene.
+   *
+   * @return the node showing the board
+   */
+  Node getNode();
+
+  /**
+   * Show the hover effect on a cell, moving it from the cell it was on.
+   *
+   * @param x column
+   * @param y row
+   */
+  void hover(int x, int y);
+
+  /**
+   * Fade out cells that have been cleared.
+   *
+   * @param coordinates coordinates of the cells to fade out
+   */
+  void fadeOut(HashSet<GameBlockCoordinate> coordinates);
+
+  /**
+   * Show where the hint engine recommends playing a piece, replacing any hint already shown.
+   *
+   * @param piece the piece, in the rotation to play it
+   * @param x     column of the centre
+   * @param y     row of the centre
+   */
+  void showHint(GamePiece piece, int x, int y);
+
+  /**
+   * Remove the hint being shown, if any.
+   */
+  void clearHint();
+
+  /**
+   * Set the listener to handle an event when a cell is clicked.
+   *
+   * @param listener listener to set
+   */
+  void setOnCellClick(CellClickedListener listener);
+
+  /**
+   * Set the listener to handle an event when the board is right clicked.
+   *
+   * @param listener listener to set
+   */
+  void setOnRightClick(RightClickedListener listener);
+
+  /**
+   * Get the number of cells fading out, for the performance HUD.
+   *
+   * @return cells fading
+   */
+  int getFading();
+}
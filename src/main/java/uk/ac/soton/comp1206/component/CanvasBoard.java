@@ -0,0 +1,380 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.HashSet;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.CellChangedListener;
+import uk.ac.soton.comp1206.event.CellClickedListener;
+import uk.ac.soton.comp1206.event.RightClickedListener;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A CanvasBoard shows the main game board by drawing every cell onto a single Canvas, for boards too large to have a
+ * GameBlock for every cell, or for machines too slow to lay out and style a node per cell.
+
+ * It listens for changed cells on the grid rather than binding a property per cell. A changed cell is only marked as
+ * dirty, and the dirty cells are repainted together once a frame, so a cell that changes several times in a frame is
+ * painted once. The cell under the mouse is worked out from the mouse position. The cost of the board is the same
+ * whatever its size, apart from the painting of cells that actually change.
+ */
+public class CanvasBoard extends Canvas implements BoardView {
+
+  private static final Logger logger = LogManager.getLogger(CanvasBoard.class);
+
+  /**
+   * The grid this board represents.
+   */
+  private final Grid grid;
+
+  /**
+   * Number of columns in the board.
+   */
+  private final int cols;
+
+  /**
+   * Number of rows in the board.
+   */
+  private final int rows;
+
+  /**
+   * The size of each cell.
+   */
+  private final double cellWidth;
+  private final double cellHeight;
+
+  /**
+   * The fades of cleared cells, which mark the cells they change as dirty.
+   */
+  private final FadeAnimator fades;
+
+  /**
+   * Cells to repaint on the next frame, by index y * cols + x.
+   */
+  private final long[] dirty;
+
+  /**
+   * Whether any cell is dirty.
+   */
+  private boolean anyDirty = false;
+
+  /**
+   * Whether each cell is part of the recommended move, by index y * cols + x.
+   */
+  private final boolean[] hint;
+
+  /**
+   * The centre and piece of the recommended move being shown, or null if there is none.
+   */
+  private GamePiece hintPiece;
+  private int hintX;
+  private int hintY;
+
+  /**
+   * Every look a cell can have, painted in advance.
+   */
+  private BlockSprites sprites;
+
+  /**
+   * The cell the hover effect is on, or -1 if none.
+   */
+  private int hoverX = -1;
+  private int hoverY = -1;
+
+  /**
+   * The listener to call when a cell is clicked.
+   */
+  private CellClickedListener cellClickedListener;
+
+  /**
+   * The listener to call when the board is right clicked.
+   */
+  private RightClickedListener rightClickListener;
+
+  /**
+   * Steps every fade and repaints the dirty cells once a frame, while there is anything to do.
+   */
+  private final AnimationTimer painter = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      boolean fading = fades.isActive() && fades.step(now);
+      paintDirty();
+      if (!fading) {
+        stop();
+        running = false;
+      }
+    }
+  };
+
+  /**
+   * Whether the painter is running.
+   */
+  private boolean running = false;
+
+  /**
+   * Create a new CanvasBoard showing a grid, with a visual width and height.
+   *
+   * @param grid   linked grid
+   * @param width  the visual width
+   * @param height the visual height
+   */
+  public CanvasBoard(Grid grid, double width, double height) {
+    super(width, height);
+    this.grid = grid;
+    this.cols = grid.getCols();
+    this.rows = grid.getRows();
+    this.cellWidth = width / cols;
+    this.cellHeight = height / rows;
+    this.fades = new FadeAnimator(cols * rows, FadeAnimator.LINE_CLEAR_MILLIS,
+        cell -> markDirty(cell % cols, cell / cols));
+    this.hint = new boolean[cols * rows];
+    this.dirty = new long[(cols * rows + 63) >>> 6];
+
+    logger.info("Building canvas board: {} x {}", cols, rows);
+
+    //Paint every cell once, then only the cells that change
+    markAll();
+    paintDirty();
+    grid.setOnCellChanged(new CellChangedListener() {
+      @Override
+      public void cellChanged(int x, int y, int value) {
+        markDirty(x, y);
+      }
+
+      @Override
+      public void cellsChanged() {
+        markAll();
+      }
+    });
+
+    setOnMouseMoved(this::mouseMoved);
+    setOnMouseExited(event -> clearHover());
+    setOnMouseClicked(this::mouseClicked);
+  }
+
+  /**
+   * Mark a cell to be repainted on the next frame.
+   *
+   * @param x column
+   * @param y row
+   */
+  private void markDirty(int x, int y) {
+    int index = y * cols + x;
+    dirty[index >>> 6] |= 1L << index;
+    schedule();
+  }
+
+  /**
+   * Mark every cell to be repainted on the next frame.
+   */
+  private void markAll() {
+    int cells = cols * rows;
+    for (var word = 0; word < dirty.length; word++) {
+      int bits = Math.min(cells - (word << 6), 64);
+      dirty[word] = bits == 64 ? -1L : (1L << bits) - 1;
+    }
+    schedule();
+  }
+
+  /**
+   * Make sure the painter runs on the next frame.
+   */
+  private void schedule() {
+    anyDirty = true;
+    if (!running) {
+      running = true;
+      painter.start();
+    }
+  }
+
+  /**
+   * Repaint every dirty cell.
+   */
+  private void paintDirty() {
+    if (!anyDirty) {
+      return;
+    }
+    anyDirty = false;
+    for (var word = 0; word < dirty.length; word++) {
+      long bits = dirty[word];
+      dirty[word] = 0;
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        paintCell(index % cols, index / cols);
+        bits &= bits - 1;
+      }
+    }
+  }
+
+  /**
+   * Paint a single cell with everything shown on it.
+   *
+   * @param x column
+   * @param y row
+   */
+  private void paintCell(int x, int y) {
+    var graphicsContext = getGraphicsContext2D();
+    double left = x * cellWidth;
+    double top = y * cellHeight;
+    int index = y * cols + x;
+
+    var variant = 0;
+    if (hint[index]) {
+      variant |= BlockSprites.HINT;
+    }
+    if (x == hoverX && y == hoverY) {
+      variant |= BlockSprites.HOVER;
+    }
+    sprites = BlockSprites.forNode(sprites, this, cellWidth, cellHeight);
+    sprites.draw(graphicsContext, grid.get(x, y), variant, left, top);
+    double fade = fades.opacity(index);
+    if (fade > 0) {
+      graphicsContext.setFill(Color.rgb(0, 1, 0, fade));
+      graphicsContext.fillRect(left, top, cellWidth, cellHeight);
+    }
+  }
+
+  /**
+   * Move the hover effect to the cell under the mouse.
+   *
+   * @param event mouse event
+   */
+  private void mouseMoved(MouseEvent event) {
+    int x = columnAt(event.getX());
+    int y = rowAt(event.getY());
+    if (x != hoverX || y != hoverY) {
+      hover(x, y);
+    }
+  }
+
+  /**
+   * Call the attached listener for the cell under the mouse.
+   *
+   * @param event mouse event
+   */
+  private void mouseClicked(MouseEvent event) {
+    int x = columnAt(event.getX());
+    int y = rowAt(event.getY());
+    logger.info("Cell clicked: {}, {}", x, y);
+
+    if (event.getButton().equals(MouseButton.PRIMARY)) {
+      if (cellClickedListener != null) {
+        cellClickedListener.cellClicked(x, y);
+      }
+    }
+    if (event.getButton().equals(MouseButton.SECONDARY)) {
+      if (rightClickListener != null) {
+        rightClickListener.setOnRightClicked();
+      }
+    }
+  }
+
+  private int columnAt(double mouseX) {
+    return Math.min(Math.max((int) (mouseX / cellWidth), 0), cols - 1);
+  }
+
+  private int rowAt(double mouseY) {
+    return Math.min(Math.max((int) (mouseY / cellHeight), 0), rows - 1);
+  }
+
+  @Override
+  public void hover(int x, int y) {
+    int oldX = hoverX;
+    int oldY = hoverY;
+    hoverX = x;
+    hoverY = y;
+    if (oldX >= 0) {
+      markDirty(oldX, oldY);
+    }
+    markDirty(x, y);
+  }
+
+  /**
+   * Remove the hover effect.
+   */
+  private void clearHover() {
+    int oldX = hoverX;
+    int oldY = hoverY;
+    hoverX = -1;
+    hoverY = -1;
+    if (oldX >= 0) {
+      markDirty(oldX, oldY);
+    }
+  }
+
+  @Override
+  public void fadeOut(HashSet<GameBlockCoordinate> coordinates) {
+    for (GameBlockCoordinate coordinate : coordinates) {
+      fades.start(coordinate.getY() * cols + coordinate.getX());
+    }
+  }
+
+  @Override
+  public void showHint(GamePiece piece, int x, int y) {
+    clearHint();
+    hintPiece = piece;
+    hintX = x;
+    hintY = y;
+    markHint(true);
+  }
+
+  @Override
+  public void clearHint() {
+    if (hintPiece != null) {
+      markHint(false);
+      hintPiece = null;
+    }
+  }
+
+  /**
+   * Mark or unmark the cells of the recommended move, and repaint them.
+   *
+   * @param shown true to mark the cells
+   */
+  private void markHint(boolean shown) {
+    var shape = hintPiece.getShape();
+    for (var i = 0; i < shape.size(); i++) {
+      int x = hintX + shape.getCellX(i);
+      int y = hintY + shape.getCellY(i);
+      if (x >= 0 && x < cols && y >= 0 && y < rows) {
+        hint[y * cols + x] = shown;
+        markDirty(x, y);
+      }
+    }
+  }
+
+  @Override
+  public void setOnCellClick(CellClickedListener listener) {
+    this.cellClickedListener = listener;
+  }
+
+  @Override
+  public void setOnRightClick(RightClickedListener listener) {
+    this.rightClickListener = listener;
+  }
+
+  @Override
+  public int getFading() {
+    return fades.getFading();
+  }
+
+  @Override
+  public Node getNode() {
+    return this;
+  }
+
+  /**
+   * Get the grid this board represents.
+   *
+   * @return grid
+   */
+  public Grid getGrid() {
+    return grid;
+  }
+}
@@ -0,0 +1,106 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import uk.ac.soton.comp1206.game.Game;
+
+/**
+ * The Countdown Bar shows the time left for the current piece. There is one bar for the whole game: each frame its
+ * width and colour are worked out afresh from the deadline the game loop set, so it cannot drift from the real
+ * countdown however late the frame is. A paused game holds the bar still, and a countdown made shorter by a new level
+ * is shown from the length it started with.
+
+ * The bar shrinks from full width to nothing, turning from green to yellow by half way and to red by three quarters of
+ * the way.
+ */
+public class CountdownBar extends Rectangle {
+
+  /**
+   * The colour of the bar at each step of the countdown, worked out once.
+   */
+  private static final Color[] SHADES = buildShades(100);
+
+  /**
+   * The game the countdown belongs to.
+   */
+  private final Game game;
+
+  /**
+   * The width of the bar when the countdown starts.
+   */
+  private final ObservableDoubleValue fullWidth;
+
+  /**
+   * Updates the bar once a frame while it is running.
+   */
+  private final AnimationTimer clock = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      update(System.nanoTime());
+    }
+  };
+
+  /**
+   * Create a new countdown bar for a game.
+   *
+   * @param game      the game
+   * @param fullWidth the width of the bar when the countdown starts
+   * @param height    the height of the bar
+   */
+  public CountdownBar(Game game, ObservableDoubleValue fullWidth, double height) {
+    this.game = game;
+    this.fullWidth = fullWidth;
+    setHeight(height);
+    setWidth(0);
+  }
+
+  /**
+   * Start updating the bar every frame.
+   */
+  public void start() {
+    clock.start();
+  }
+
+  /**
+   * Stop updating the bar.
+   */
+  public void stop() {
+    clock.stop();
+  }
+
+  /**
+   * Show the countdown as it is at a given time.
+   *
+   * @param now the current System.nanoTime
+   */
+  private void update(long now) {
+    long length = game.getTimerDelay() * 1_000_000L;
+    double left = length <= 0 ? 0 : Math.min((double) game.getTimeLeft(now) / length, 1);
+    //Setting the same width or shade again does nothing, so a paused bar costs nothing to draw
+    setWidth(fullWidth.get() * left);
+    setFill(SHADES[(int) Math.round((1 - left) * (SHADES.length - 1))]);
+  }
+
+  /**
+   * Work out the colour of the bar at evenly spaced steps of the countdown.
+   *
+   * @param steps number of steps
+   * @return colour by step, from the start of the countdown to the end
+   */
+  private static Color[] buildShades(int steps) {
+    var shades = new Color[steps + 1];
+    for (var i = 0; i <= steps; i++) {
+      double gone = (double) i / steps;
+      if (gone < 0.5) {
+        shades[i] = Color.GREEN.interpolate(Color.YELLOW, gone / 0.5);
+      } else if (gone < 0.75) {
+        shades[i] = Color.YELLOW.interpolate(Color.RED, (gone - 0.5) / 0.25);
+      } else {
+        shades[i] = Color.RED;
+      }
+    }
+    return shades;
+  }
+}
@@ -0,0 +1,135 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.function.IntConsumer;
+
+/**
+ * The Fade Animator runs every fade on a board together, for the board's own animation timer to drive once a frame.
+ * A fade is worked out from the time since it started rather than the number of frames shown, so it takes the same
+ * time however fast the board is being drawn.
+
+ * Every cell has a slot for its fade made up front, and the cells fading are kept in a dense list, so starting a fade
+ * allocates nothing and each frame only costs as much as the number of cells fading. A cell that is still fading when
+ * it is faded again starts over.
+ */
+final class FadeAnimator {
+
+  /**
+   * How long a cell cleared from a line takes to fade, in milliseconds.
+   */
+  static final int LINE_CLEAR_MILLIS = 800;
+
+  /**
+   * Start time of a fade that has not seen a frame yet.
+   */
+  private static final long UNSTARTED = Long.MIN_VALUE;
+
+  /**
+   * How long each fade takes, in nanoseconds.
+   */
+  private final long duration;
+
+  /**
+   * Told about each cell whose fade has changed, and should be repainted.
+   */
+  private final IntConsumer changed;
+
+  /**
+   * The opacity of the fade on each cell, or 0 if the cell is not fading.
+   */
+  private final double[] opacity;
+
+  /**
+   * The time of the first frame of the fade on each cell.
+   */
+  private final long[] start;
+
+  /**
+   * The cells fading, the first count of them in use.
+   */
+  private final int[] active;
+  private int count = 0;
+
+  /**
+   * Create a new animator for a board.
+   *
+   * @param cells   number of cells on the board
+   * @param millis  how long each fade takes, in milliseconds
+   * @param changed told about each cell whose fade has changed, by index y * cols + x
+   */
+  FadeAnimator(int cells, int millis, IntConsumer changed) {
+    this.duration = millis * 1_000_000L;
+    this.changed = changed;
+    this.opacity = new double[cells];
+    this.start = new long[cells];
+    this.active = new int[cells];
+  }
+
+  /**
+   * Start fading a cell from full opacity. The fade begins counting at the next frame.
+   *
+   * @param cell index of the cell
+   */
+  void start(int cell) {
+    if (opacity[cell] == 0) {
+      active[count++] = cell;
+    }
+    opacity[cell] = 1;
+    start[cell] = UNSTARTED;
+    changed.accept(cell);
+  }
+
+  /**
+   * Move every fade on to the time of a frame, dropping the fades that have finished.
+   *
+   * @param now time of the frame, as given to an AnimationTimer
+   * @return true if any cell is still fading
+   */
+  boolean step(long now) {
+    var i = 0;
+    while (i < count) {
+      int cell = active[i];
+      if (start[cell] == UNSTARTED) {
+        start[cell] = now;
+      }
+      double left = 1 - (double) (now - start[cell]) / duration;
+      if (left <= 0) {
+        opacity[cell] = 0;
+        //Fill the gap with the last cell, which is stepped next
+        active[i] = active[--count];
+      } else {
+        opacity[cell] = left;
+        i++;
+      }
+      changed.accept(cell);
+    }
+    return count > 0;
+  }
+
+  /**
+   * Get the opacity of the fade on a cell.
+   *
+   * @param cell index of the cell
+   * @return opacity from 1 down to 0, or 0 if the cell is not fading
+   */
+  double opacity(int cell) {
+    return opacity[cell];
+  }
+
+  /**
+   * Check whether any cell is fading.
+   *
+   * @return true if there is a fade to step
+   */
+  boolean isActive() {
+    return count > 0;
+  }
+
+  /**
+   * Get the number of cells fading.
+   *
+   * @return cells fading
+   */
+  int getFading() {
+    return count;
+  }
+}
@@ -1,10 +1,10 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import org.apache.logging.log4j.LogManager;
@@ -71,6 +71,16 @@ public class GameBlock extends Canvas {
    */
   private boolean hover = false;
 
+  /**
+   * Part of the move recommended by the hint engine.
+   */
+  private boolean hint = false;
+
+  /**
+   * Every look a block of this size can have, painted in advance.
+   */
+  private BlockSprites sprites;
+
   /**
    * Create a new single Game Block.
    *
@@ -108,77 +118,93 @@ public class GameBlock extends Canvas {
   }
 
   /**
-   * painting of block canvas.
+   * painting of block canvas. The block is copied from its sprite, with the centre, hover and hint effects already
+   * painted on.
    */
   public void paint() {
-    //Paint the block empty if it's empty.
-    if (value.get() == 0) {
-      paintEmpty();
-    } else {
-      //Paint the block with the colour specified by the value if it is not empty.
-      paintColor(COLOURS[value.get()]);
-    }
-
-    // if centerOfPiece is true, then paint center of piece
+    var variant = 0;
     if (this.centerOfPiece) {
-      var graphicsContext = getGraphicsContext2D();
-
-      graphicsContext.setFill(Color.color(1,1,1,0.6));
-      graphicsContext.fillOval(width / 4, height / 4, width / 2, height / 2);
+      variant |= BlockSprites.CENTRE;
     }
-    // If hover is true, then paint hover
     if (this.hover) {
-      var gc = getGraphicsContext2D();
-
-      gc.setFill(Color.rgb(204, 204, 204, 0.4));
-      gc.fillRect(0, 0, width, height);
+      variant |= BlockSprites.HOVER;
+    }
+    if (this.hint) {
+      variant |= BlockSprites.HINT;
     }
+    sprites = BlockSprites.forNode(sprites, this, width, height);
+    sprites.draw(getGraphicsContext2D(), value.get(), variant, 0, 0);
   }
 
   /**
-   * Paint for empty canvas.
+   * Paint an empty block onto part of a canvas.
+   *
+   * @param graphicsContext where to paint
+   * @param left            left edge of the block
+   * @param top             top edge of the block
+   * @param width           width of the block
+   * @param height          height of the block
    */
-  private void paintEmpty() {
-    var graphicsContext = getGraphicsContext2D();
-
+  static void paintEmpty(GraphicsContext graphicsContext, double left, double top, double width, double height) {
     //Clear Canvas
-    graphicsContext.clearRect(0, 0, width, height);
+    graphicsContext.clearRect(left, top, width, height);
 
     //Fill Canvas
     graphicsContext.setFill(Color.rgb(0, 0, 0, 0.3));
-    graphicsContext.fillRect(0, 0, width, height);
+    graphicsContext.fillRect(left, top, width, height);
 
     //Border Canvas
     graphicsContext.setStroke(Color.WHITE);
-    graphicsContext.strokeRect(0, 0, width, height);
+    graphicsContext.strokeRect(left, top, width, height);
   }
 
   /**
-   * Paint canvas with the provided colour.
+   * Paint a block of the provided colour onto part of a canvas.
    *
-   * @param colour colour to paint.
+   * @param graphicsContext where to paint
+   * @param colour          colour to paint
+   * @param left            left edge of the block
+   * @param top             top edge of the block
+   * @param width           width of the block
+   * @param height          height of the block
    */
-  private void paintColor(Paint colour) {
-    var graphicsContext = getGraphicsContext2D();
-
+  static void paintColor(GraphicsContext graphicsContext, Paint colour, double left, double top, double width,
+      double height) {
     // Clear
-    graphicsContext.clearRect(0, 0, width, height);
+    graphicsContext.clearRect(left, top, width, height);
 
     // Color fill
     graphicsContext.setFill(colour);
-    graphicsContext.fillRect(0, 0, width, height);
+    graphicsContext.fillRect(left, top, width, height);
 
     // Creates 3D effect on piece
     graphicsContext.setFill(Color.rgb(59, 59, 59, 0.2));
-    graphicsContext.fillPolygon(new double[]{0, 0, width}, new double[]{0, height, height}, 3);
+    graphicsContext.fillPolygon(new double[]{left, left, left + width},
+        new double[]{top, top + height, top + height}, 3);
     graphicsContext.setFill(Color.rgb(161, 161, 161, 0.3));
-    graphicsContext.fillRect(0, 0, 3, height);
+    graphicsContext.fillRect(left, top, 3, height);
     graphicsContext.setFill(Color.rgb(255, 255, 255, 0.3));
-    graphicsContext.fillRect(0, 0, width, 3);
+    graphicsContext.fillRect(left, top, width, 3);
 
     //Border
     graphicsContext.setStroke(Color.rgb(0, 0, 0, 0.6));
-    graphicsContext.strokeRect(0, 0, width, height);
+    graphicsContext.strokeRect(left, top, width, height);
+  }
+
+  /**
+   * Paint the recommended move highlight onto part of a canvas.
+   *
+   * @param graphicsContext where to paint
+   * @param left            left edge of the block
+   * @param top             top edge of the block
+   * @param width           width of the block
+   * @param height          height of the block
+   */
+  static void paintHint(GraphicsContext graphicsContext, double left, double top, double width, double height) {
+    graphicsContext.setFill(Color.rgb(255, 215, 0, 0.45));
+    graphicsContext.fillRect(left, top, width, height);
+    graphicsContext.setStroke(Color.GOLD);
+    graphicsContext.strokeRect(left + 1, top + 1, width - 2, height - 2);
   }
 
   /**
@@ -199,26 +225,29 @@ public class GameBlock extends Canvas {
   }
 
   /**
-   * Fade line when it is cleared.
+   * To show this block as part of the recommended move.
+   *
+   * @param hint true if part of the recommended move
+   */
+  public void hint(boolean hint) {
+    if (this.hint != hint) {
+      this.hint = hint;
+      paint();
+    }
+  }
+
+  /**
+   * Paint a step of the fade when the line is cleared. The fades of a board are driven together by the board.
+   *
+   * @param opacity opacity of the fade, or 0 once it has finished
    */
-  public void fadeOut() {
-    var animeTimer = new AnimationTimer() {
-      double opacity = 1;
-
-      @Override
-      public void handle(long l) {
-        GameBlock.this.paintEmpty();
-        opacity = opacity - 0.02;
-        if (opacity <= 0) {
-          stop();
-          return;
-        }
-        var graphics = getGraphicsContext2D();
-        graphics.setFill(Color.rgb(0, 1, 0, opacity));
-        graphics.fillRect(0, 0, GameBlock.this.width, GameBlock.this.height);
-      }
-    };
-    animeTimer.start();
+  public void paintFade(double opacity) {
+    paint();
+    if (opacity > 0) {
+      var graphics = getGraphicsContext2D();
+      graphics.setFill(Color.rgb(0, 1, 0, opacity));
+      graphics.fillRect(0, 0, width, height);
+    }
   }
 
   /**
@@ -1,13 +1,18 @@
 package uk.ac.soton.comp1206.component;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.event.CellClickedListener;
 import uk.ac.soton.comp1206.event.RightClickedListener;
+import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 
 
@@ -19,7 +24,7 @@ import uk.ac.soton.comp1206.game.Grid;
  * The GameBoard is only a visual representation and should not contain game logic or model logic in it, which should
  * take place in the Grid.
  */
-public class GameBoard extends GridPane {
+public class GameBoard extends GridPane implements BoardView {
 
   private static final Logger logger = LogManager.getLogger(GameBoard.class);
 
@@ -69,6 +74,27 @@ public class GameBoard extends GridPane {
   private RightClickedListener rightClickListener;
   private GameBlock hover;
 
+  /**
+   * The fades of cleared blocks, made when first needed.
+   */
+  private FadeAnimator fades;
+
+  /**
+   * Steps every fade once a frame, while any block is fading.
+   */
+  private final AnimationTimer fader = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      if (!fades.step(now)) {
+        stop();
+      }
+    }
+  };
+
+  /**
+   * The blocks showing the recommended move.
+   */
+  private final ArrayList<GameBlock> hinted = new ArrayList<>();
 
   /**
    * Create a new GameBoard, based off a given grid, with a visual width and height.
@@ -188,6 +214,16 @@ public class GameBoard extends GridPane {
     block.hover(true);
   }
 
+  @Override
+  public void hover(int x, int y) {
+    hover(getBlock(x, y));
+  }
+
+  @Override
+  public Node getNode() {
+    return this;
+  }
+
   /**
    * Set the listener to handle an event when a block is clicked.
    *
@@ -197,6 +233,11 @@ public class GameBoard extends GridPane {
     this.blockClickedListener = listener;
   }
 
+  @Override
+  public void setOnCellClick(CellClickedListener listener) {
+    setOnBlockClick(block -> listener.cellClicked(block.getX(), block.getY()));
+  }
+
   /**
    * Triggered when a block is clicked. Call the attached listener.
    *
@@ -218,25 +259,51 @@ public class GameBoard extends GridPane {
     }
   }
 
-  /**
-   * fade out effect.
-   *
-   * @param coordinates coordinates of the blocks to be faded out (cleared).
-   */
+  @Override
   public void fadeOut(HashSet<GameBlockCoordinate> coordinates) {
+    if (fades == null) {
+      fades = new FadeAnimator(cols * rows, FadeAnimator.LINE_CLEAR_MILLIS,
+          cell -> blocks[cell % cols][cell / cols].paintFade(fades.opacity(cell)));
+    }
     for (GameBlockCoordinate coordinate : coordinates) {
-      blocks[coordinate.getX()][coordinate.getY()].fadeOut();
+      fades.start(coordinate.getY() * cols + coordinate.getX());
     }
+    fader.start();
   }
 
-  /**
-   * Listens to right clicks.
-   * @param rightClickedListener listener
-   */
+  @Override
+  public void showHint(GamePiece piece, int x, int y) {
+    clearHint();
+    var shape = piece.getShape();
+    for (var i = 0; i < shape.size(); i++) {
+      int blockX = x + shape.getCellX(i);
+      int blockY = y + shape.getCellY(i);
+      if (blockX >= 0 && blockX < cols && blockY >= 0 && blockY < rows) {
+        var block = blocks[blockX][blockY];
+        block.hint(true);
+        hinted.add(block);
+      }
+    }
+  }
+
+  @Override
+  public void clearHint() {
+    for (GameBlock block : hinted) {
+      block.hint(false);
+    }
+    hinted.clear();
+  }
+
+  @Override
   public void setOnRightClick(RightClickedListener rightClickedListener) {
     this.rightClickListener = rightClickedListener;
   }
 
+  @Override
+  public int getFading() {
+    return fades == null ? 0 : fades.getFading();
+  }
+
     /**
      * getter for the grid.
      * @return  grid
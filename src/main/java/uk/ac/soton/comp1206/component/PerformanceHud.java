@@ -0,0 +1,220 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.Arrays;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import uk.ac.soton.comp1206.game.Game;
+
+/**
+ * The Performance HUD shows how well the game is keeping up: the frame rate and frame times, the time spent on layout
+ * each frame, the number of nodes in the scene, the cells fading, and the time the last action took in the game. When
+ * the game stutters, this shows whether drawing, layout or the game itself is to blame.
+
+ * The HUD only measures while it is shown. Once hidden, its timer and pulse listeners are removed, so it costs nothing.
+ * The readings are refreshed twice a second rather than every frame, so the HUD does not add much to what it measures.
+ */
+public class PerformanceHud extends VBox {
+
+  /**
+   * The number of frame times kept for the percentiles, a few seconds' worth.
+   */
+  private static final int SAMPLES = 240;
+
+  /**
+   * How often the readings are refreshed, in nanoseconds.
+   */
+  private static final long REFRESH = 500_000_000L;
+
+  /**
+   * The game being played, or null if there is none.
+   */
+  private Game game;
+
+  /**
+   * The scene being measured while shown.
+   */
+  private Scene measured;
+
+  /**
+   * The times between the latest frames, in a ring, and the number of frames recorded in total.
+   */
+  private final long[] frames = new long[SAMPLES];
+  private long recorded = 0;
+
+  /**
+   * Room to sort the frame times in, made once.
+   */
+  private final long[] sorted = new long[SAMPLES];
+
+  /**
+   * The time of the last frame and the last refresh, and the frames since the last refresh.
+   */
+  private long lastFrame = 0;
+  private long lastRefresh = 0;
+  private int framesSinceRefresh = 0;
+
+  /**
+   * When layout started in the current frame, and the longest layout since the last refresh.
+   */
+  private long layoutStart;
+  private long layoutWorst = 0;
+
+  /**
+   * The cells fading on the boards in the scene, added up as the nodes are counted.
+   */
+  private int cellsFading;
+
+  private final Text fps = new Text();
+  private final Text frameTime = new Text();
+  private final Text layout = new Text();
+  private final Text nodes = new Text();
+  private final Text fading = new Text();
+  private final Text logic = new Text();
+
+  /**
+   * Records every frame and refreshes the readings.
+   */
+  private final AnimationTimer meter = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      frame(now);
+    }
+  };
+
+  /**
+   * Time the CSS and layout pass of each frame of the scene.
+   */
+  private final Runnable beforeLayout = () -> layoutStart = System.nanoTime();
+
+  private final Runnable afterLayout = () -> layoutWorst = Math.max(layoutWorst, System.nanoTime() - layoutStart);
+
+  /**
+   * Create a new, hidden, performance HUD.
+   */
+  public PerformanceHud() {
+    getStyleClass().add("hud");
+    getChildren().addAll(fps, frameTime, layout, nodes, fading, logic);
+    for (var child : getChildren()) {
+      child.getStyleClass().add("hud-text");
+    }
+    setMaxSize(USE_PREF_SIZE, USE_PREF_SIZE);
+    setMouseTransparent(true);
+  }
+
+  /**
+   * Show the time taken by the actions of a game.
+   *
+   * @param game the game, or null for none
+   */
+  public void setGame(Game game) {
+    this.game = game;
+  }
+
+  /**
+   * Start measuring a scene. The HUD should be in the scene.
+   *
+   * @param scene the scene
+   */
+  public void start(Scene scene) {
+    stop();
+    measured = scene;
+    scene.addPreLayoutPulseListener(beforeLayout);
+    scene.addPostLayoutPulseListener(afterLayout);
+    recorded = 0;
+    lastFrame = 0;
+    lastRefresh = 0;
+    framesSinceRefresh = 0;
+    layoutWorst = 0;
+    meter.start();
+  }
+
+  /**
+   * Stop measuring.
+   */
+  public void stop() {
+    meter.stop();
+    if (measured != null) {
+      measured.removePreLayoutPulseListener(beforeLayout);
+      measured.removePostLayoutPulseListener(afterLayout);
+      measured = null;
+    }
+  }
+
+  /**
+   * Record a frame, and refresh the readings if it is time.
+   *
+   * @param now time of the frame, as given to an AnimationTimer
+   */
+  private void frame(long now) {
+    if (lastFrame != 0) {
+      frames[(int) (recorded++ % SAMPLES)] = now - lastFrame;
+      framesSinceRefresh++;
+    } else {
+      lastRefresh = now;
+    }
+    lastFrame = now;
+    if (now - lastRefresh >= REFRESH) {
+      refresh(now);
+    }
+  }
+
+  /**
+   * Show the readings since the last refresh.
+   *
+   * @param now time of the frame, as given to an AnimationTimer
+   */
+  private void refresh(long now) {
+    var count = (int) Math.min(recorded, SAMPLES);
+    System.arraycopy(frames, 0, sorted, 0, count);
+    Arrays.sort(sorted, 0, count);
+    long p50 = sorted[(count - 1) / 2];
+    long p99 = sorted[(int) Math.ceil(count * 0.99) - 1];
+
+    fps.setText(String.format("FPS %.1f", framesSinceRefresh * 1e9 / (now - lastRefresh)));
+    frameTime.setText(String.format("FRAME p50 %.1f p99 %.1f ms", millis(p50), millis(p99)));
+    layout.setText(String.format("LAYOUT max %.2f ms", millis(layoutWorst)));
+    cellsFading = 0;
+    nodes.setText("NODES " + countNodes(measured.getRoot()));
+    fading.setText("FADING " + cellsFading);
+    if (game != null) {
+      logic.setText(String.format("LOGIC %.2f ms, APPLY %.2f ms", millis(game.getActionTime()),
+          millis(game.getApplyTime())));
+    } else {
+      logic.setText("LOGIC -");
+    }
+
+    lastRefresh = now;
+    framesSinceRefresh = 0;
+    layoutWorst = 0;
+  }
+
+  /**
+   * Convert nanoseconds to milliseconds.
+   *
+   * @param nanos time in nanoseconds
+   * @return time in milliseconds
+   */
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+
+  /**
+   * Count a node and every node inside it, adding the cells fading on any board among them to cellsFading.
+   *
+   * @param parent the node
+   * @return number of nodes
+   */
+  private int countNodes(Parent parent) {
+    var count = 1;
+    for (var child : parent.getChildrenUnmodifiable()) {
+      if (child instanceof BoardView board) {
+        cellsFading += board.getFading();
+      }
+      count += child instanceof Parent inner ? countNodes(inner) : 1;
+    }
+    return count;
+  }
+}
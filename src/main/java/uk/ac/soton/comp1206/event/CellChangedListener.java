@@ -0,0 +1,24 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Changed listener is used to observe the storage behind a grid. It is told whenever the value of a single
+ * cell changes, or once when many cells change together.
+ */
+public interface CellChangedListener {
+
+  /**
+   * Handle a cell changing value.
+   *
+   * @param x     column
+   * @param y     row
+   * @param value the new value of the cell
+   */
+  void cellChanged(int x, int y, int value);
+
+  /**
+   * Handle any number of cells changing at once, such as when a snapshot is restored. The listener is not told about
+   * each cell, and should read the grid again.
+   */
+  default void cellsChanged() {
+  }
+}
@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Clicked listener is used to handle the event when a cell of a board is clicked. It passes the column and row
+ * of the cell, so it works for boards which do not have a GameBlock for every cell.
+ */
+public interface CellClickedListener {
+
+  /**
+   * Handle a cell clicked event.
+   *
+   * @param x column of the cell
+   * @param y row of the cell
+   */
+  void cellClicked(int x, int y);
+}
@@ -0,0 +1,104 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The Game Engine listener is used to observe a GameEngine. Every method does nothing by default, so a listener only
+ * needs to handle the events it is interested in.
+ */
+public interface GameEngineListener {
+
+  /**
+   * Handle a piece being played.
+   *
+   * @param gamePiece the piece that was played
+   * @param x         x position of the centre of the piece
+   * @param y         y position of the centre of the piece
+   */
+  default void piecePlayed(GamePiece gamePiece, int x, int y) {
+  }
+
+  /**
+   * Handle a piece that could not be played.
+   *
+   * @param gamePiece the piece
+   * @param x         x position that was tried
+   * @param y         y position that was tried
+   */
+  default void pieceRejected(GamePiece gamePiece, int x, int y) {
+  }
+
+  /**
+   * Handle lines being cleared. Called before the cells are emptied.
+   *
+   * @param cells  set of cleared cells made by the BitGrid, only valid during the call
+   * @param lines  number of lines cleared
+   * @param blocks number of blocks cleared
+   */
+  default void linesCleared(long[] cells, int lines, int blocks) {
+  }
+
+  /**
+   * Handle a new current piece being dealt.
+   *
+   * @param currentPiece   the new current piece
+   * @param followingPiece the new following piece
+   */
+  default void nextPiece(GamePiece currentPiece, GamePiece followingPiece) {
+  }
+
+  /**
+   * Handle the current piece being rotated.
+   *
+   * @param currentPiece the rotated piece
+   */
+  default void pieceRotated(GamePiece currentPiece) {
+  }
+
+  /**
+   * Handle the current and following pieces being swapped.
+   *
+   * @param currentPiece   the new current piece
+   * @param followingPiece the new following piece
+   */
+  default void piecesSwapped(GamePiece currentPiece, GamePiece followingPiece) {
+  }
+
+  /**
+   * Handle the score changing.
+   *
+   * @param score the new score
+   */
+  default void scoreChanged(int score) {
+  }
+
+  /**
+   * Handle the level changing.
+   *
+   * @param level the new level
+   */
+  default void levelChanged(int level) {
+  }
+
+  /**
+   * Handle the number of lives changing.
+   *
+   * @param lives the new number of lives
+   */
+  default void livesChanged(int lives) {
+  }
+
+  /**
+   * Handle the multiplier changing.
+   *
+   * @param multiplier the new multiplier
+   */
+  default void multiplierChanged(int multiplier) {
+  }
+
+  /**
+   * Handle the game ending.
+   */
+  default void gameOver() {
+  }
+}
@@ -0,0 +1,107 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A Game Event is something that happened in a game, as published on a GameEventBus. Each kind of event is a record, so
+ * subscribers can ask for only the kinds they are interested in and read the values straight from the event.
+
+ * Events are made on the game loop and never changed afterwards, so they can be handed to any thread.
+ */
+public sealed interface GameEvent {
+
+  /**
+   * A piece was played.
+   *
+   * @param piece the piece
+   * @param x     x position of the centre of the piece
+   * @param y     y position of the centre of the piece
+   */
+  record PiecePlayed(GamePiece piece, int x, int y) implements GameEvent {
+  }
+
+  /**
+   * A piece could not be played.
+   *
+   * @param piece the piece
+   * @param x     x position that was tried
+   * @param y     y position that was tried
+   */
+  record PieceRejected(GamePiece piece, int x, int y) implements GameEvent {
+  }
+
+  /**
+   * Lines were cleared.
+   *
+   * @param cells  set of cleared cells, as made by the BitGrid, which must not be changed
+   * @param lines  number of lines cleared
+   * @param blocks number of blocks cleared
+   */
+  record LinesCleared(long[] cells, int lines, int blocks) implements GameEvent {
+  }
+
+  /**
+   * The current or following piece changed: a piece was dealt, rotated or swapped, or a move was undone or redone.
+   *
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   */
+  record PiecesChanged(GamePiece currentPiece, GamePiece followingPiece) implements GameEvent {
+  }
+
+  /**
+   * The score changed.
+   *
+   * @param score the new score
+   */
+  record ScoreChanged(int score) implements GameEvent {
+  }
+
+  /**
+   * The level changed.
+   *
+   * @param level the new level
+   */
+  record LevelChanged(int level) implements GameEvent {
+  }
+
+  /**
+   * The number of lives changed.
+   *
+   * @param lives the new number of lives
+   */
+  record LivesChanged(int lives) implements GameEvent {
+  }
+
+  /**
+   * The multiplier changed.
+   *
+   * @param multiplier the new multiplier
+   */
+  record MultiplierChanged(int multiplier) implements GameEvent {
+  }
+
+  /**
+   * The countdown for the current piece started again.
+   *
+   * @param delay time until the piece runs out, in milliseconds
+   */
+  record CountdownStarted(int delay) implements GameEvent {
+  }
+
+  /**
+   * The game was paused or resumed. The countdown stops while the game is paused.
+   *
+   * @param paused true if the game is now paused
+   */
+  record Paused(boolean paused) implements GameEvent {
+  }
+
+  /**
+   * The game ended.
+   *
+   * @param score the final score
+   */
+  record GameOver(int score) implements GameEvent {
+  }
+}
@@ -0,0 +1,178 @@
+package uk.ac.soton.comp1206.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Game Event Bus hands the events of a game to any number of subscribers. Each subscriber names the executor its
+ * events are delivered on, so a slow subscriber only holds up itself and never the game loop publishing the events.
+
+ * Events are published in batches, one for each action the game loop handles: a single placement can play a piece,
+ * clear lines and change the score, level, multiplier and pieces all at once. A subscriber either takes the events one
+ * by one, optionally of a single kind, or takes them in batches. A batched subscriber is given every event waiting for
+ * it in one list, so a subscriber delivered on the JavaFX thread gets the events of everything that happened since the
+ * last frame together.
+
+ * Each subscriber is given its events in the order they were published, never on two threads at once.
+ */
+public class GameEventBus {
+
+  private static final Logger logger = LogManager.getLogger(GameEventBus.class);
+
+  /**
+   * The current subscribers.
+   */
+  private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+  /**
+   * A subscription to the events on the bus, which can be cancelled.
+   */
+  public interface Subscription {
+
+    /**
+     * Stop delivering events. Events already being delivered may still arrive.
+     */
+    void cancel();
+  }
+
+  /**
+   * Subscribe to every event of one kind, one at a time.
+   *
+   * @param type       the kind of event, or GameEvent.class for every event
+   * @param executor   delivers the events, such as Platform::runLater
+   * @param subscriber told about each event
+   * @param <T>        the kind of event
+   * @return the subscription
+   */
+  public <T extends GameEvent> Subscription subscribe(Class<T> type, Executor executor,
+      Consumer<? super T> subscriber) {
+    return add(new Subscriber(type, executor, events -> {
+      for (GameEvent event : events) {
+        subscriber.accept(type.cast(event));
+      }
+    }));
+  }
+
+  /**
+   * Subscribe to every event in batches. Each batch holds every event published since the last batch was delivered,
+   * so it is at least all of the events of one action.
+   *
+   * @param executor   delivers the batches, such as Platform::runLater
+   * @param subscriber told about each batch
+   * @return the subscription
+   */
+  public Subscription subscribeBatched(Executor executor, Consumer<List<GameEvent>> subscriber) {
+    return add(new Subscriber(GameEvent.class, executor, subscriber));
+  }
+
+  private Subscription add(Subscriber subscriber) {
+    subscribers.add(subscriber);
+    return () -> {
+      subscriber.cancelled = true;
+      subscribers.remove(subscriber);
+    };
+  }
+
+  /**
+   * Check whether anything is subscribed, so events need not be made when nobody would be told about them.
+   *
+   * @return true if there is at least one subscriber
+   */
+  public boolean hasSubscribers() {
+    return !subscribers.isEmpty();
+  }
+
+  /**
+   * Publish the events of one action. The list is copied, so it may be reused as soon as this returns.
+   *
+   * @param events the events, in the order they happened
+   */
+  public void publish(List<GameEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    for (Subscriber subscriber : subscribers) {
+      subscriber.offer(events);
+    }
+  }
+
+  /**
+   * A subscriber with the events waiting for it.
+   */
+  private static class Subscriber {
+
+    private final Class<? extends GameEvent> type;
+    private final Executor executor;
+    private final Consumer<List<GameEvent>> sink;
+
+    /**
+     * Events waiting to be delivered.
+     */
+    private final ConcurrentLinkedQueue<GameEvent> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a delivery has been handed to the executor and not finished yet.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile boolean cancelled = false;
+
+    Subscriber(Class<? extends GameEvent> type, Executor executor, Consumer<List<GameEvent>> sink) {
+      this.type = type;
+      this.executor = executor;
+      this.sink = sink;
+    }
+
+    /**
+     * Queue the events this subscriber is interested in, and make sure a delivery is on its way.
+     *
+     * @param events the events
+     */
+    void offer(List<GameEvent> events) {
+      var added = false;
+      for (GameEvent event : events) {
+        if (type.isInstance(event)) {
+          queue.add(event);
+          added = true;
+        }
+      }
+      if (added) {
+        schedule();
+      }
+    }
+
+    private void schedule() {
+      //Only one delivery is in flight at a time, so events are never delivered out of order or on two threads
+      if (scheduled.compareAndSet(false, true)) {
+        executor.execute(this::deliver);
+      }
+    }
+
+    private void deliver() {
+      var events = new ArrayList<GameEvent>();
+      GameEvent event;
+      while ((event = queue.poll()) != null) {
+        events.add(event);
+      }
+      if (!cancelled && !events.isEmpty()) {
+        try {
+          sink.accept(events);
+        } catch (RuntimeException e) {
+          logger.error("Game event subscriber failed", e);
+        }
+      }
+      scheduled.set(false);
+      //Events queued while delivering, after the queue was emptied, need another delivery
+      if (!queue.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
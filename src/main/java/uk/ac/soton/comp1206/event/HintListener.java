@@ -0,0 +1,14 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Hint listener is used to receive the move recommended by the HintEngine.
+ */
+public interface HintListener {
+
+  /**
+   * Handle a recommended move.
+   *
+   * @param move packed move as made by Move.of, or Move.NONE if neither piece fits anywhere
+   */
+  void hintFound(int move);
+}
@@ -0,0 +1,61 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals the pieces from a shuffled bag holding one of each of the 15 pieces, and refills the bag once it is empty.
+ * Every piece is dealt once in every 15, so there are never long droughts of a piece.
+ */
+public class BagPieceGenerator extends QueuedPieceGenerator {
+
+  /**
+   * The types of piece. The ones still in the bag are at the front.
+   */
+  private final int[] bag = new int[GamePiece.PIECES];
+
+  /**
+   * The number of pieces still in the bag.
+   */
+  private int remaining = 0;
+
+  /**
+   * Create a new generator from a seed.
+   *
+   * @param seed the seed
+   */
+  public BagPieceGenerator(long seed) {
+    this(new SplittableRandom(seed), DEFAULT_PREVIEW);
+  }
+
+  /**
+   * Create a new generator.
+   *
+   * @param random  source of the randomness, used by this generator alone
+   * @param preview number of upcoming pieces to keep
+   */
+  public BagPieceGenerator(SplittableRandom random, int preview) {
+    super(random, preview);
+    for (var i = 0; i < bag.length; i++) {
+      bag[i] = i;
+    }
+  }
+
+  @Override
+  protected GamePiece generate() {
+    if (remaining == 0) {
+      remaining = bag.length;
+    }
+    //Draw a random piece from those left and move it behind them
+    int drawn = random.nextInt(remaining);
+    remaining--;
+    int type = bag[drawn];
+    bag[drawn] = bag[remaining];
+    bag[remaining] = type;
+    return withRandomRotation(type);
+  }
+
+  @Override
+  public PieceGenerator split() {
+    return new BagPieceGenerator(random.split(), getPreviewSize());
+  }
+}
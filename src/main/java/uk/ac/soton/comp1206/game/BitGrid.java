@@ -0,0 +1,761 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import uk.ac.soton.comp1206.event.CellChangedListener;
+
+/**
+ * The BitGrid is the storage behind a Grid. Occupancy is held as a packed bitboard with one bit per cell in row-major
+ * order, so a board of up to 8x8 fits in a single long and larger boards span several words. The colour of each cell
+ * is held separately in a flat byte array.
+
+ * Checking whether a piece fits is a shift and an AND against the occupancy words, so no per-cell objects are touched.
+
+ * The BitGrid does not depend on JavaFX. A Grid layers the bindable IntegerProperty view on top of it for display.
+ */
+public class BitGrid {
+
+  /**
+   * The number of columns in this grid.
+   */
+  private final int cols;
+
+  /**
+   * The number of rows in this grid.
+   */
+  private final int rows;
+
+  /**
+   * Occupancy of every cell, one bit per cell. Cell (x, y) is bit y * cols + x.
+   */
+  private final long[] occupancy;
+
+  /**
+   * The value (colour) of every cell, indexed the same way as the occupancy bits.
+   */
+  private final byte[] colours;
+
+  /**
+   * The number of occupied cells in each row.
+   */
+  private final int[] rowCounts;
+
+  /**
+   * The number of occupied cells in each column.
+   */
+  private final int[] colCounts;
+
+  /**
+   * The mask of every shape laid out for the width of this grid, when the whole grid fits in a single word.
+   */
+  private final long[] shapeMasks;
+
+  /**
+   * Shape masks for every width of board that fits in a single word, indexed by number of columns.
+   */
+  private static final long[][] SHAPE_MASKS = new long[65][];
+
+  static {
+    for (var cols = 1; cols <= 64; cols++) {
+      SHAPE_MASKS[cols] = buildShapeMasks(cols);
+    }
+  }
+
+  /**
+   * The legal centre positions of every shape, as sets of cells indexed by shape id. Created on first use.
+   */
+  private long[][] legalPlacements;
+
+  /**
+   * The centre positions of every shape that keep the whole shape on the board, indexed by shape id.
+   */
+  private long[][] inBounds;
+
+  /**
+   * The shapes whose legal positions are up to date, one bit per shape id.
+   */
+  private long legalShapes = 0;
+
+  /**
+   * The Zobrist hash of the occupied cells, and of the occupied cells with their colours. Both are updated on every
+   * change to a cell.
+   */
+  private long occupancyHash = 0;
+  private long hash = 0;
+
+  /**
+   * The occupancy hash of this grid as it would be under each symmetry, so that finding the canonical form of a
+   * position does not have to visit every cell. They are only kept once the grid is first asked for one, so scratch
+   * grids that are never looked up in a table pay nothing for them. Only the symmetries other than the identity that
+   * fit the grid are kept; the identity is the occupancy hash itself.
+   */
+  private boolean symmetriesKept = false;
+  private long[] symmetryHashes;
+  private int[] symmetries;
+
+  /**
+   * The key each cell adds to each symmetry hash, from Symmetry.cellKeys.
+   */
+  private long[] symmetryKeys;
+
+  /**
+   * Listener told about every cell that changes.
+   */
+  private CellChangedListener cellChangedListener = null;
+
+  /**
+   * Create a new empty BitGrid with the specified number of columns and rows.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   */
+  public BitGrid(int cols, int rows) {
+    if (cols <= 0 || rows <= 0 || cols * rows > Zobrist.MAX_CELLS) {
+      throw new IllegalArgumentException("Invalid grid size: " + cols + " x " + rows);
+    }
+    this.cols = cols;
+    this.rows = rows;
+    this.occupancy = new long[(cols * rows + 63) >>> 6];
+    this.colours = new byte[cols * rows];
+    this.rowCounts = new int[rows];
+    this.colCounts = new int[cols];
+    this.shapeMasks = occupancy.length == 1 ? SHAPE_MASKS[cols] : null;
+  }
+
+  /**
+   * Check whether a piece can be played with its centre at the given x and y position.
+   *
+   * @param gamePiece piece to be played
+   * @param xValue    x position
+   * @param yValue    y position
+   * @return true if the piece is inside the grid and does not overlap any occupied cell
+   */
+  public boolean canPlayPiece(GamePiece gamePiece, int xValue, int yValue) {
+    var shape = gamePiece.getShape();
+    int left = xValue + shape.getMinX();
+    int top = yValue + shape.getMinY();
+    if (left < 0 || xValue + shape.getMaxX() >= cols || top < 0 || yValue + shape.getMaxY() >= rows) {
+      return false;
+    }
+    if (shapeMasks != null) {
+      //Shift the whole piece to its place on the board and test it against the occupied cells
+      return (occupancy[0] & (shapeMasks[shape.getId()] << (top * cols + left))) == 0;
+    }
+    //Shift each row of the piece to its place on the board and test it against the occupied cells
+    int width = shape.getMaxX() - shape.getMinX() + 1;
+    for (var row = shape.getMinY(); row <= shape.getMaxY(); row++) {
+      long pattern = shape.getRowPattern(row + 1) >>> (shape.getMinX() + 1);
+      if ((bitsAt((yValue + row) * cols + left, width) & pattern) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Play a piece with its centre at the given x and y position, if it fits.
+   *
+   * @param gamePiece piece to be played
+   * @param xValue    x position
+   * @param yValue    y position
+   * @return true if the piece was played
+   */
+  public boolean playPiece(GamePiece gamePiece, int xValue, int yValue) {
+    if (!canPlayPiece(gamePiece, xValue, yValue)) {
+      return false;
+    }
+    var shape = gamePiece.getShape();
+    for (var cell = 0; cell < shape.size(); cell++) {
+      set(xValue + shape.getCellX(cell), yValue + shape.getCellY(cell), shape.getValue());
+    }
+    return true;
+  }
+
+  /**
+   * Get every centre position at which a piece can be played, as a set of cells laid out like the occupancy bits.
+
+   * The set is worked out for all positions at once by shifting the occupancy once for each block of the piece, and
+   * is kept up to date as cells are filled. The returned set belongs to the grid and must not be changed.
+   *
+   * @param gamePiece the piece
+   * @return set of legal centre positions
+   */
+  public long[] getLegalPlacements(GamePiece gamePiece) {
+    int id = gamePiece.getId();
+    if (legalPlacements == null) {
+      legalPlacements = new long[GamePiece.PIECES * GamePiece.ROTATIONS][];
+      inBounds = new long[GamePiece.PIECES * GamePiece.ROTATIONS][];
+    }
+    if ((legalShapes & (1L << id)) == 0) {
+      computeLegalPlacements(id, gamePiece.getShape());
+      legalShapes |= 1L << id;
+    }
+    return legalPlacements[id];
+  }
+
+  /**
+   * Check whether a piece can be played anywhere in any rotation.
+   *
+   * @param gamePiece the piece
+   * @return true if there is at least one legal placement
+   */
+  public boolean hasLegalPlacement(GamePiece gamePiece) {
+    for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+      for (long word : getLegalPlacements(gamePiece.rotated(rotations))) {
+        if (word != 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether neither of two pieces can be played anywhere in any rotation.
+   *
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return true if there is no legal move with either piece
+   */
+  public boolean isStuck(GamePiece currentPiece, GamePiece followingPiece) {
+    return !hasLegalPlacement(currentPiece) && !hasLegalPlacement(followingPiece);
+  }
+
+  /**
+   * Work out the legal positions of a shape from scratch. A position is legal if it keeps the shape on the board and
+   * no block of the shape lands on an occupied cell.
+   *
+   * @param id    shape id
+   * @param shape the shape
+   */
+  private void computeLegalPlacements(int id, PieceShape shape) {
+    if (legalPlacements[id] == null) {
+      legalPlacements[id] = newCellSet();
+      inBounds[id] = computeInBounds(shape);
+    }
+    long[] legal = legalPlacements[id];
+    Arrays.fill(legal, 0L);
+    for (var cell = 0; cell < shape.size(); cell++) {
+      orShifted(occupancy, shape.getCellY(cell) * cols + shape.getCellX(cell), legal);
+    }
+    long[] bounds = inBounds[id];
+    for (var word = 0; word < legal.length; word++) {
+      legal[word] = bounds[word] & ~legal[word];
+    }
+  }
+
+  /**
+   * Work out the centre positions that keep the whole of a shape on the board.
+   *
+   * @param shape the shape
+   * @return set of positions
+   */
+  private long[] computeInBounds(PieceShape shape) {
+    long[] bounds = newCellSet();
+    for (var y = -shape.getMinY(); y < rows - shape.getMaxY(); y++) {
+      for (var x = -shape.getMinX(); x < cols - shape.getMaxX(); x++) {
+        int index = y * cols + x;
+        bounds[index >>> 6] |= 1L << index;
+      }
+    }
+    return bounds;
+  }
+
+  /**
+   * Remove every legal position of the up to date shapes that would cover a newly filled cell.
+   *
+   * @param index the cell that was filled
+   */
+  private void excludePlacementsCovering(int index) {
+    long shapes = legalShapes;
+    while (shapes != 0) {
+      int id = Long.numberOfTrailingZeros(shapes);
+      shapes &= shapes - 1;
+      var shape = GamePiece.fromId(id).getShape();
+      long[] legal = legalPlacements[id];
+      for (var cell = 0; cell < shape.size(); cell++) {
+        int position = index - (shape.getCellY(cell) * cols + shape.getCellX(cell));
+        if (position >= 0 && position < colours.length) {
+          legal[position >>> 6] &= ~(1L << position);
+        }
+      }
+    }
+  }
+
+  /**
+   * OR a set of cells, shifted so that bit p of the result is bit p + shift of the source, into another set.
+   *
+   * @param source cells to shift
+   * @param shift  distance to shift down by, negative to shift up
+   * @param target set to OR the shifted cells into
+   */
+  private static void orShifted(long[] source, int shift, long[] target) {
+    int words = source.length;
+    int wordShift = Math.abs(shift) >>> 6;
+    int bitShift = Math.abs(shift) & 63;
+    for (var word = 0; word < words; word++) {
+      long bits = 0;
+      if (shift >= 0) {
+        int from = word + wordShift;
+        if (from < words) {
+          bits = source[from] >>> bitShift;
+          if (bitShift != 0 && from + 1 < words) {
+            bits |= source[from + 1] << (64 - bitShift);
+          }
+        }
+      } else {
+        int from = word - wordShift;
+        if (from >= 0) {
+          bits = source[from] << bitShift;
+          if (bitShift != 0 && from - 1 >= 0) {
+            bits |= source[from - 1] >>> (64 - bitShift);
+          }
+        }
+      }
+      target[word] |= bits;
+    }
+  }
+
+  /**
+   * Find the full rows and columns touched by a piece played with its centre at the given x and y position.
+   *
+   * @param gamePiece the piece that was played
+   * @param xValue    x position
+   * @param yValue    y position
+   * @param cleared   set of cells to add the blocks of every full line to, as made by newCellSet
+   * @return the number of full lines
+   */
+  public int findFullLines(GamePiece gamePiece, int xValue, int yValue, long[] cleared) {
+    var shape = gamePiece.getShape();
+    return findFullLines(xValue + shape.getMinX(), yValue + shape.getMinY(),
+        xValue + shape.getMaxX(), yValue + shape.getMaxY(), cleared);
+  }
+
+  /**
+   * Find the full rows and columns crossing a region of the grid. Only the rows and columns of the region are checked.
+   *
+   * @param left    first column to check
+   * @param top     first row to check
+   * @param right   last column to check
+   * @param bottom  last row to check
+   * @param cleared set of cells to add the blocks of every full line to, as made by newCellSet
+   * @return the number of full lines
+   */
+  public int findFullLines(int left, int top, int right, int bottom, long[] cleared) {
+    var lines = 0;
+    for (var y = Math.max(top, 0); y <= Math.min(bottom, rows - 1); y++) {
+      if (rowCounts[y] == cols) {
+        lines++;
+        for (var x = 0; x < cols; x++) {
+          int index = y * cols + x;
+          cleared[index >>> 6] |= 1L << index;
+        }
+      }
+    }
+    for (var x = Math.max(left, 0); x <= Math.min(right, cols - 1); x++) {
+      if (colCounts[x] == rows) {
+        lines++;
+        for (var y = 0; y < rows; y++) {
+          int index = y * cols + x;
+          cleared[index >>> 6] |= 1L << index;
+        }
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Empty every cell in a set of cells.
+   *
+   * @param cells set of cells, as made by newCellSet
+   * @return the number of cells in the set
+   */
+  public int clearCells(long[] cells) {
+    var count = 0;
+    for (var word = 0; word < cells.length; word++) {
+      long bits = cells[word];
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        set(index % cols, index / cols, 0);
+        bits &= bits - 1;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Create an empty set of cells for this grid. Cell (x, y) is bit y * cols + x, the same as the occupancy bits.
+   *
+   * @return a new empty set of cells
+   */
+  public long[] newCellSet() {
+    return new long[occupancy.length];
+  }
+
+  /**
+   * Get the number of occupied cells in a row.
+   *
+   * @param y row
+   * @return number of occupied cells
+   */
+  public int getRowCount(int y) {
+    return rowCounts[y];
+  }
+
+  /**
+   * Get the number of occupied cells in a column.
+   *
+   * @param x column
+   * @return number of occupied cells
+   */
+  public int getColumnCount(int x) {
+    return colCounts[x];
+  }
+
+  /**
+   * Check whether every cell of a row is occupied.
+   *
+   * @param y row
+   * @return true if the row is full
+   */
+  public boolean isRowFull(int y) {
+    return rowCounts[y] == cols;
+  }
+
+  /**
+   * Check whether every cell of a column is occupied.
+   *
+   * @param x column
+   * @return true if the column is full
+   */
+  public boolean isColumnFull(int x) {
+    return colCounts[x] == rows;
+  }
+
+  /**
+   * Update the value at the given x and y index within the grid. A value of 0 empties the cell, and colours go up to
+   * 15 so that they fit in four bits.
+   *
+   * @param x     column
+   * @param y     row
+   * @param value the new value
+   */
+  public void set(int x, int y, int value) {
+    if (x < 0 || x >= cols || y < 0 || y >= rows) {
+      throw new ArrayIndexOutOfBoundsException("No such cell: " + x + ", " + y);
+    }
+    if (value < 0 || value > 15) {
+      throw new IllegalArgumentException("Invalid colour: " + value);
+    }
+    int index = y * cols + x;
+    if (colours[index] == value) {
+      return;
+    }
+    boolean wasOccupied = colours[index] != 0;
+    if (wasOccupied) {
+      hash ^= Zobrist.colour(index, colours[index]);
+    }
+    if (value != 0) {
+      hash ^= Zobrist.colour(index, value);
+    }
+    colours[index] = (byte) value;
+    if (value == 0) {
+      occupancy[index >>> 6] &= ~(1L << index);
+      occupancyHash ^= Zobrist.cell(index);
+      if (symmetriesKept) {
+        toggleSymmetryHashes(index);
+      }
+      rowCounts[y]--;
+      colCounts[x]--;
+      //Emptied cells can make any position legal again, so work them out afresh when next asked
+      legalShapes = 0;
+    } else if (!wasOccupied) {
+      occupancy[index >>> 6] |= 1L << index;
+      occupancyHash ^= Zobrist.cell(index);
+      if (symmetriesKept) {
+        toggleSymmetryHashes(index);
+      }
+      rowCounts[y]++;
+      colCounts[x]++;
+      if (legalShapes != 0) {
+        excludePlacementsCovering(index);
+      }
+    }
+    if (cellChangedListener != null) {
+      cellChangedListener.cellChanged(x, y, value);
+    }
+  }
+
+  /**
+   * Get the value at the given x and y index within the grid.
+   *
+   * @param x column
+   * @param y row
+   * @return the value, or -1 if there is no such cell
+   */
+  public int get(int x, int y) {
+    if (x < 0 || x >= cols || y < 0 || y >= rows) {
+      return -1;
+    }
+    return colours[y * cols + x];
+  }
+
+  /**
+   * Check whether the cell at the given x and y index is occupied.
+   *
+   * @param x column
+   * @param y row
+   * @return true if the cell holds a block
+   */
+  public boolean isOccupied(int x, int y) {
+    int index = y * cols + x;
+    return (occupancy[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Get the occupancy of a whole row, with column 0 in the lowest bit. Only for grids of at most 64 columns.
+   *
+   * @param y row
+   * @return the occupied cells of the row
+   */
+  public long getRowBits(int y) {
+    return bitsAt(y * cols, cols);
+  }
+
+  /**
+   * Get the number of occupied cells in the grid.
+   *
+   * @return number of occupied cells
+   */
+  public int getOccupiedCount() {
+    var count = 0;
+    for (long word : occupancy) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Get the Zobrist hash of the occupied cells, ignoring their colours. Positions that play the same have the same
+   * hash, so this is the key for caching searches.
+   *
+   * @return hash of the occupancy
+   */
+  public long getOccupancyHash() {
+    return occupancyHash;
+  }
+
+  /**
+   * Get the Zobrist hash of every cell and its colour, identifying exactly what is on the board.
+   *
+   * @return hash of the board
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * Make this grid a copy of another grid of the same size. The listener is not told about the change, so this is
+   * meant for scratch grids used in searches.
+   *
+   * @param other grid to copy
+   */
+  public void copyFrom(BitGrid other) {
+    if (other.cols != cols || other.rows != rows) {
+      throw new IllegalArgumentException("Cannot copy a " + other.cols + " x " + other.rows + " grid");
+    }
+    System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+    System.arraycopy(other.colours, 0, colours, 0, colours.length);
+    System.arraycopy(other.rowCounts, 0, rowCounts, 0, rows);
+    System.arraycopy(other.colCounts, 0, colCounts, 0, cols);
+    occupancyHash = other.occupancyHash;
+    hash = other.hash;
+    //Copies are mostly scratch grids for searches, so they only keep symmetry hashes if they are asked for one
+    symmetriesKept = false;
+    legalShapes = 0;
+  }
+
+  /**
+   * Get the occupancy hash of this grid transformed by a symmetry.
+   *
+   * @param t the symmetry, which must be valid for the size of this grid
+   * @return hash of the transformed occupancy
+   */
+  long getSymmetryHash(int t) {
+    if (t == 0) {
+      return occupancyHash;
+    }
+    if (!symmetriesKept) {
+      keepSymmetries();
+    }
+    return symmetryHashes[t];
+  }
+
+  /**
+   * Work out the hash of every symmetry from the occupied cells, and keep them up to date from now on.
+   */
+  private void keepSymmetries() {
+    if (symmetryHashes == null) {
+      symmetryKeys = Symmetry.cellKeys(cols, rows);
+      symmetryHashes = new long[Symmetry.COUNT];
+      symmetries = IntStream.range(1, Symmetry.COUNT).filter(t -> Symmetry.isValid(t, cols, rows)).toArray();
+    }
+    Arrays.fill(symmetryHashes, 0);
+    for (var word = 0; word < occupancy.length; word++) {
+      for (long bits = occupancy[word]; bits != 0; bits &= bits - 1) {
+        toggleSymmetryHashes((word << 6) + Long.numberOfTrailingZeros(bits));
+      }
+    }
+    symmetriesKept = true;
+  }
+
+  /**
+   * Add or remove a cell from the hash of every symmetry kept.
+   *
+   * @param index cell index
+   */
+  private void toggleSymmetryHashes(int index) {
+    int base = index * Symmetry.COUNT;
+    for (int t : symmetries) {
+      symmetryHashes[t] ^= symmetryKeys[base + t];
+    }
+  }
+
+  /**
+   * Copy the occupancy words, for a Snapshot.
+   *
+   * @return copy of the occupancy
+   */
+  long[] copyOccupancy() {
+    return occupancy.clone();
+  }
+
+  /**
+   * Pack the colours of the occupied cells two to a byte in cell order, for a Snapshot.
+   *
+   * @return packed colours
+   */
+  byte[] packColours() {
+    var packed = new byte[(getOccupiedCount() + 1) / 2];
+    var count = 0;
+    for (var word = 0; word < occupancy.length; word++) {
+      for (long bits = occupancy[word]; bits != 0; bits &= bits - 1) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        packed[count >>> 1] |= (byte) ((colours[index] & 0xF) << ((count & 1) << 2));
+        count++;
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Put back the cells saved in a Snapshot. The listener is told once that the cells have changed, rather than about
+   * each cell.
+   *
+   * @param occupancy occupancy made by copyOccupancy
+   * @param packed    colours made by packColours
+   */
+  void restore(long[] occupancy, byte[] packed) {
+    System.arraycopy(occupancy, 0, this.occupancy, 0, occupancy.length);
+    Arrays.fill(colours, (byte) 0);
+    Arrays.fill(rowCounts, 0);
+    Arrays.fill(colCounts, 0);
+    occupancyHash = 0;
+    hash = 0;
+    symmetriesKept = false;
+    var count = 0;
+    for (var word = 0; word < occupancy.length; word++) {
+      for (long bits = occupancy[word]; bits != 0; bits &= bits - 1) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        int value = (packed[count >>> 1] >>> ((count & 1) << 2)) & 0xF;
+        count++;
+        colours[index] = (byte) value;
+        rowCounts[index / cols]++;
+        colCounts[index % cols]++;
+        occupancyHash ^= Zobrist.cell(index);
+        hash ^= Zobrist.colour(index, value);
+      }
+    }
+    legalShapes = 0;
+    if (cellChangedListener != null) {
+      cellChangedListener.cellsChanged();
+    }
+  }
+
+  /**
+   * Empty every cell in the grid.
+   */
+  public void clear() {
+    for (var y = 0; y < rows; y++) {
+      for (var x = 0; x < cols; x++) {
+        set(x, y, 0);
+      }
+    }
+  }
+
+  /**
+   * Read a run of occupancy bits starting at the given cell index. The run may cross a word boundary.
+   *
+   * @param index  first cell index
+   * @param length number of bits, at most 64
+   * @return the bits, with the first cell in the lowest bit
+   */
+  private long bitsAt(int index, int length) {
+    int word = index >>> 6;
+    int offset = index & 63;
+    long bits = occupancy[word] >>> offset;
+    if (offset + length > 64) {
+      bits |= occupancy[word + 1] << (64 - offset);
+    }
+    return length == 64 ? bits : bits & ((1L << length) - 1);
+  }
+
+  /**
+   * Build the mask of every shape for a board with the given number of columns. Each mask has the top left corner of
+   * the bounding box of the shape in bit 0, with rows of the shape cols bits apart.
+   *
+   * @param cols number of columns
+   * @return the masks, indexed by shape id
+   */
+  private static long[] buildShapeMasks(int cols) {
+    var masks = new long[GamePiece.PIECES * GamePiece.ROTATIONS];
+    for (var id = 0; id < masks.length; id++) {
+      var shape = GamePiece.fromId(id).getShape();
+      for (var cell = 0; cell < shape.size(); cell++) {
+        int bit = (shape.getCellY(cell) - shape.getMinY()) * cols + shape.getCellX(cell) - shape.getMinX();
+        if (bit < 64) {
+          masks[id] |= 1L << bit;
+        }
+      }
+    }
+    return masks;
+  }
+
+  /**
+   * Set the listener to be told about every cell that changes.
+   *
+   * @param listener listener to set
+   */
+  public void setOnCellChanged(CellChangedListener listener) {
+    this.cellChangedListener = listener;
+  }
+
+  /**
+   * Get the number of columns in this grid.
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows in this grid.
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+}
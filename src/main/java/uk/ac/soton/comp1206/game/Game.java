@@ -2,10 +2,9 @@ package uk.ac.soton.comp1206.game;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Random;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javafx.application.Platform;
@@ -14,17 +13,35 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.utility.Config;
 import uk.ac.soton.comp1206.utility.Multimedia;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+import uk.ac.soton.comp1206.event.CellChangedListener;
+import uk.ac.soton.comp1206.event.GameEngineListener;
+import uk.ac.soton.comp1206.event.GameEvent;
+import uk.ac.soton.comp1206.event.GameEventBus;
 import uk.ac.soton.comp1206.event.GameLoopListener;
 import uk.ac.soton.comp1206.event.GameOverListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
 
 /**
  * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state,
  * and to handle actions made by the player should take place inside this class.
+
+ * The rules themselves are in a GameEngine. The Game runs the game loop, plays the sounds and mirrors the state of the
+ * engine into properties for the UI to bind to.
+
+ * The engine is only ever touched by the game loop, a single thread which handles every action of the player and every
+ * timeout in turn, so no two changes to the state can overlap. The changes are gathered into a GameDelta and handed to
+ * the JavaFX thread, which applies them to the grid, properties and listeners. If the JavaFX thread falls behind, the
+ * deltas waiting for it are merged, so it is never asked to repaint a state that has already been replaced. Everything
+ * the UI reads from the Game is the copy on the JavaFX thread.
+
+ * The events of each action handled are also published as one batch on a GameEventBus, for any number of subscribers
+ * on threads of their own choosing. Events are only made while something is subscribed.
  */
 public class Game {
   /**
@@ -55,16 +72,19 @@ public class Game {
   private LineClearedListener lineClearedListener = null;
 
   /**
-   * The piece currently being controlled by the player
+   * The bus the events of the game are published on.
    */
-
-  public GamePiece currentPiece;
+  private final GameEventBus events = new GameEventBus();
 
   /**
-   * The piece following the currentPiece;
+   * Events of the action being handled, only used on the game loop.
    */
+  private final ArrayList<GameEvent> batch = new ArrayList<>();
 
-  public GamePiece followingPiece;
+  /**
+   * The engine holding the rules and state of this game, only used on the game loop.
+   */
+  protected final GameEngine engine;
 
   /**
    * Number of rows.
@@ -76,15 +96,78 @@ public class Game {
   protected final int cols;
 
   /**
-   * The grid model linked to the game.
+   * The grid model linked to the game: a copy of the grid of the engine, kept on the JavaFX thread.
    */
   protected final Grid grid;
 
-  // The game loop.
+  // The countdown for the current piece.
   private ScheduledFuture<?> loop;
 
-  // Calls gameLoop methods.
-  private ScheduledExecutorService timer;
+  /**
+   * The countdown as kept on the game loop: its full length in milliseconds, the System.nanoTime it runs out at, and
+   * whether it is paused with some nanoseconds left.
+   */
+  private int countdownLength;
+  private long deadline;
+  private boolean paused = false;
+  private long remaining;
+
+  // The game loop, which handles every event and owns the engine.
+  private final ScheduledThreadPoolExecutor timer;
+
+  /**
+   * The states the game can be undone and redone to, only used on the game loop.
+   */
+  private final History history = new History();
+
+  /**
+   * Changes made by the event being handled, only used on the game loop.
+   */
+  private GameDelta building;
+
+  /**
+   * Changes waiting for the JavaFX thread, guarded by deltaLock.
+   */
+  private GameDelta pending;
+
+  /**
+   * Changes being applied, only used on the JavaFX thread.
+   */
+  private GameDelta applying;
+
+  /**
+   * Whether the JavaFX thread has been asked to apply the pending changes, guarded by deltaLock.
+   */
+  private boolean posted = false;
+
+  private final Object deltaLock = new Object();
+
+  /**
+   * Nanoseconds the game loop spent on the last action it handled, and the JavaFX thread spent applying the last
+   * changes, for the performance overlay.
+   */
+  private volatile long actionTime;
+  private long applyTime;
+
+  /**
+   * The pieces and the countdown as last applied on the JavaFX thread.
+   */
+  private GamePiece currentPiece;
+  private GamePiece followingPiece;
+  private int countdown;
+  private long countdownDeadline;
+  private boolean countdownPaused = false;
+  private long countdownLeft;
+
+  /**
+   * Records the actions of the player, if the game is being recorded.
+   */
+  private ReplayRecorder recorder = null;
+
+  /**
+   * Whether this is a practice game, which can undo and redo moves and whose score is not kept.
+   */
+  private boolean practice = false;
 
   /**
    * Game Scores
@@ -116,12 +199,49 @@ public class Game {
    * @param rows number of rows
    */
   public Game(int cols, int rows) {
+    this(cols, rows, new UniformPieceGenerator(System.nanoTime()));
+  }
+
+  /**
+   * Create a new game with the specified rows and columns, dealing pieces from the given generator. A seeded generator
+   * makes the game reproducible.
+   *
+   * @param cols      number of columns
+   * @param rows      number of rows
+   * @param generator deals the pieces
+   */
+  public Game(int cols, int rows, PieceGenerator generator) {
     this.cols = cols;
     this.rows = rows;
 
-    //Create a new grid model to represent the game state
+    //Create a new engine, and a grid model on the JavaFX thread to represent the game state
+    this.engine = new GameEngine(cols, rows, generator);
     this.grid = new Grid(cols, rows);
-    timer = Executors.newSingleThreadScheduledExecutor();
+    this.countdown = engine.getTimerDelay();
+    building = new GameDelta(engine.getGrid());
+    pending = new GameDelta(engine.getGrid());
+    applying = new GameDelta(engine.getGrid());
+    engine.setListener(new EngineListener());
+    engine.getGrid().setOnCellChanged(new CellChangedListener() {
+      @Override
+      public void cellChanged(int x, int y, int value) {
+        building.cell(y * cols + x, value);
+      }
+
+      @Override
+      public void cellsChanged() {
+        building.allCells(engine.getGrid());
+      }
+    });
+
+    timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+      var thread = new Thread(runnable, "Game Loop");
+      thread.setDaemon(true);
+      return thread;
+    });
+    //Countdowns still waiting when the game stops are dropped, but actions already made are handled
+    timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    timer.setRemoveOnCancelPolicy(true);
   }
 
   /**
@@ -129,35 +249,142 @@ public class Game {
    */
   public void start() {
     logger.info("Starting game");
-    initialiseGame();
-    // Setting up the loop
-    loop = timer.schedule(this::gameLoop, getTimerDelay(), TimeUnit.MILLISECONDS);
-    gameLoopListener();
+    post(() -> {
+      initialiseGame();
+      resetLoop();
+    });
   }
 
   /**
-   * Events that will take place when the game loop ends.
+   * Events that will take place when the countdown for a piece runs out. Runs on the game loop.
    */
-  public void gameLoop() {
+  private void gameLoop() {
     logger.info("In GameLoop");
     updateLives();
-    //Reseting the Multiplier
-    if (multiplier.get() > 1) {
-      logger.info("Resat the Multiplier");
-      multiplier.set(1);
+    //The last life is gone, so there is no next countdown; stopTimer ends the recording
+    if (engine.isGameOver()) {
+      return;
+    }
+    restartCountdown();
+  }
+
+  /**
+   * Hand an event to the game loop, to be handled after every event before it. Events made after the game has stopped
+   * are dropped.
+   *
+   * @param event the event
+   */
+  private void post(Runnable event) {
+    try {
+      timer.execute(() -> handle(event));
+    } catch (RejectedExecutionException e) {
+      logger.debug("Game stopped, event dropped");
+    }
+  }
+
+  /**
+   * Handle an event on the game loop, then hand the changes it made to the JavaFX thread.
+   *
+   * @param event the event
+   */
+  private void handle(Runnable event) {
+    long start = System.nanoTime();
+    try {
+      event.run();
+    } catch (RuntimeException e) {
+      logger.error("Game loop event failed", e);
+    }
+    actionTime = System.nanoTime() - start;
+    if (!batch.isEmpty()) {
+      events.publish(batch);
+      batch.clear();
+    }
+    if (building.isEmpty()) {
+      return;
     }
-    nextPiece();
-    gameLoopListener();
-    loop = timer.schedule(this::gameLoop, getTimerDelay(), TimeUnit.MILLISECONDS);
+    synchronized (deltaLock) {
+      pending.merge(building);
+      if (!posted) {
+        posted = true;
+        Platform.runLater(this::applyDelta);
+      }
+    }
+    building.clear();
+  }
+
+  /**
+   * Apply the changes waiting for the JavaFX thread, all at once.
+   */
+  private void applyDelta() {
+    long start = System.nanoTime();
+    synchronized (deltaLock) {
+      var delta = pending;
+      pending = applying;
+      applying = delta;
+      posted = false;
+    }
+    var delta = applying;
+
+    var dirty = delta.dirty;
+    for (var word = 0; word < dirty.length; word++) {
+      long bits = dirty[word];
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        grid.set(index % cols, index / cols, delta.cells[index]);
+        bits &= bits - 1;
+      }
+    }
+    if ((delta.changed & GameDelta.SCORE) != 0) {
+      score.set(delta.score);
+    }
+    if ((delta.changed & GameDelta.LEVEL) != 0) {
+      level.set(delta.level);
+    }
+    if ((delta.changed & GameDelta.LIVES) != 0) {
+      lives.set(delta.lives);
+    }
+    if ((delta.changed & GameDelta.MULTIPLIER) != 0) {
+      multiplier.set(delta.multiplier);
+    }
+    if ((delta.changed & GameDelta.PIECES) != 0) {
+      currentPiece = delta.currentPiece;
+      followingPiece = delta.followingPiece;
+      if (nextPieceListener != null) {
+        nextPieceListener.nextPiece(currentPiece);
+      }
+    }
+    var cleared = toCoordinates(delta.cleared);
+    if (!cleared.isEmpty() && lineClearedListener != null) {
+      lineClearedListener.lineCleared(cleared);
+    }
+    if ((delta.changed & GameDelta.COUNTDOWN) != 0) {
+      countdown = delta.countdown;
+      countdownDeadline = delta.deadline;
+      countdownPaused = delta.paused;
+      countdownLeft = delta.remaining;
+    }
+    if ((delta.changed & GameDelta.RESTART) != 0 && gameLoopListener != null) {
+      gameLoopListener.gameLoop(countdown);
+    }
+    for (String sound : delta.sounds) {
+      Multimedia.playAudio(sound);
+    }
+    if ((delta.changed & GameDelta.GAME_OVER) != 0) {
+      Multimedia.playBackgroundMusic("end.wav");
+      if (gameOverListener != null) {
+        gameOverListener.gameOver();
+      }
+    }
+    delta.clear();
+    applyTime = System.nanoTime() - start;
   }
 
   /**
    * Initialise a new game and set up anything that needs to be done at the start.
    */
-  public void initialiseGame() {
+  private void initialiseGame() {
     logger.info("Initialising game");
-    this.followingPiece = spawnPiece();
-    nextPiece();
+    engine.start();
   }
 
   /**
@@ -166,71 +393,195 @@ public class Game {
    * @param gameBlock the block that was clicked
    */
   public void blockClicked(GameBlock gameBlock) {
-    //Get the position of this block
-    int x = gameBlock.getX();
-    int y = gameBlock.getY();
-
-    // Updates the grid after checking if the piece can be played or not.
-    if (grid.canPlayPiece(currentPiece, x, y)) {
-      Multimedia.playAudio("place.wav");
-      // Placing the GamePiece on the grid.
-      grid.playPiece(currentPiece, x, y);
-      // Calling nextPiece method to spawn a new piece.
-      afterPiece();
-      nextPiece();
+    blockClicked(gameBlock.getX(), gameBlock.getY());
+  }
+
+  /**
+   * Handle what should happen when the cell at a particular column and row is clicked.
+   *
+   * @param x column
+   * @param y row
+   */
+  public void blockClicked(int x, int y) {
+    // Places the piece and clears lines if it can be played, then resets the game loop.
+    post(() -> {
+      if (paused) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.place(x, y);
+      }
+      var before = engine.snapshot(history.latest());
+      if (engine.place(x, y)) {
+        history.record(before);
+        resetLoop();
+      }
+    });
+  }
+
+  /**
+   * Restart the countdown for the current piece. Runs on the game loop.
+   */
+  private void resetLoop() {
+    if (loop != null) {
       loop.cancel(false);
-      loop = timer.schedule(this::gameLoop, getTimerDelay(), TimeUnit.MILLISECONDS);
-      gameLoopListener();
-      logger.info("GameLoop reset.");
-    } else {
-      Multimedia.playAudio("fail.wav");
     }
+    restartCountdown();
+    logger.info("GameLoop reset.");
   }
 
   /**
-   * stops the game loop.
+   * Start the countdown again for the time the current level allows, and tell the UI. Runs on the game loop.
    */
-  public void stopTimer() {
-    logger.info("Stopping the timer");
-    // stopping the timer.
-    timer.shutdownNow();
+  private void restartCountdown() {
+    countdownLength = engine.getTimerDelay();
+    schedule(countdownLength * 1_000_000L);
+    countdownChanged();
+    building.changed |= GameDelta.RESTART;
+    if (events.hasSubscribers()) {
+      batch.add(new GameEvent.CountdownStarted(countdownLength));
+    }
   }
 
   /**
-   * Create a random Piece with a random rotation.
+   * Run out the time for the current piece after a while, and note when that will be. Runs on the game loop.
    *
-   * @return new GamePiece
+   * @param nanos time until the piece runs out
    */
-  public GamePiece spawnPiece() {
-    Random rndm = new Random();     // for random piece.
-    Random rndmTransition = new Random();   // for random transition of the piece.
-    return GamePiece.createPiece(rndm.nextInt(15), rndmTransition.nextInt(3));
+  private void schedule(long nanos) {
+    deadline = System.nanoTime() + nanos;
+    loop = timer.schedule(() -> handle(this::gameLoop), nanos, TimeUnit.NANOSECONDS);
   }
 
   /**
-   * change current piece with the following piece and generate a new Piece.
+   * Hand the whole state of the countdown to the UI. Runs on the game loop.
    */
-  public void nextPiece() {
-    // Assigning current piece to comingPiece
-    currentPiece = followingPiece;
-    // Creating a new piece and assigning it to the comingPiece.
-    followingPiece = spawnPiece();
+  private void countdownChanged() {
+    building.changed |= GameDelta.COUNTDOWN;
+    building.countdown = countdownLength;
+    building.deadline = deadline;
+    building.paused = paused;
+    building.remaining = remaining;
+  }
 
-    if (nextPieceListener != null) {
-      nextPieceListener.nextPiece(currentPiece);
-    }
+  /**
+   * Stop the countdown, keeping the time left for the current piece. Nothing can be played until the game is resumed.
+   */
+  public void pause() {
+    post(() -> {
+      if (paused || loop == null || engine.isGameOver()) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.pause();
+      }
+      loop.cancel(false);
+      remaining = Math.max(deadline - System.nanoTime(), 0);
+      paused = true;
+      countdownChanged();
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.Paused(true));
+      }
+      logger.info("Paused with {} ms left", remaining / 1_000_000);
+    });
+  }
+
+  /**
+   * Carry on the countdown from where it was paused.
+   */
+  public void resume() {
+    post(() -> {
+      if (!paused) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.resume();
+      }
+      paused = false;
+      schedule(remaining);
+      countdownChanged();
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.Paused(false));
+      }
+      logger.info("Resumed");
+    });
+  }
+
+  /**
+   * Go back to the state before the last piece played, life lost or life bought. The countdown starts again. Only a
+   * practice game can undo.
+   */
+  public void undo() {
+    post(() -> {
+      if (paused || !practice) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.undo();
+      }
+      var snapshot = history.undo(engine.snapshot(history.latest()));
+      if (snapshot == null) {
+        building.sounds.add("fail.wav");
+        return;
+      }
+      logger.info("Undo, {} more to undo", history.getUndoCount());
+      engine.restore(snapshot);
+      resetLoop();
+      building.sounds.add("rotate.wav");
+    });
+  }
 
-    logger.info("current piece is now: " + currentPiece);
+  /**
+   * Go forward again to the state before the last undo. The countdown starts again. Only a practice game can redo.
+   */
+  public void redo() {
+    post(() -> {
+      if (paused || !practice) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.redo();
+      }
+      var snapshot = history.redo(engine.snapshot(history.latest()));
+      if (snapshot == null) {
+        building.sounds.add("fail.wav");
+        return;
+      }
+      logger.info("Redo, {} more to redo", history.getRedoCount());
+      engine.restore(snapshot);
+      resetLoop();
+      building.sounds.add("rotate.wav");
+    });
+  }
+
+  /**
+   * stops the game loop. Actions already made are still handled, and the recording is closed after them.
+   */
+  public void stopTimer() {
+    logger.info("Stopping the timer");
+    post(() -> {
+      if (recorder != null) {
+        recorder.close(engine.getScore());
+      }
+    });
+    // stopping the timer.
+    timer.shutdown();
   }
 
   /**
    * Swap the current piece with the following piece.
    */
   public void swapCurrentPiece() {
-    GamePiece newGamePiece = currentPiece;
-    currentPiece = followingPiece;
-    followingPiece = newGamePiece;
-    logger.info("current piece is now next piece");
+    post(() -> {
+      if (paused) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.swap();
+      }
+      engine.swap();
+      logger.info("current piece is now next piece");
+    });
   }
 
   /**
@@ -239,138 +590,284 @@ public class Game {
    * @param x is number of times for rotation.
    */
   public void rotateCurrentPiece(int x) {
-    // Rotating the current piece.
-    currentPiece.rotate(x);
-  }
-
-  /**
-   * This method is called when a piece is played.
-   * This method handles clearing of lines.
-   */
-  public void afterPiece() {
-    var clearedLines = new HashSet<GameBlockCoordinate>();
-    var clear = new HashSet<IntegerProperty>();
-    var linesCleared = 0;
-
-    //Checking for Horizontal lines (Rows).
-    for (var x = 0; x < grid.getCols(); x++) {
-      int count = 0;
-      for (var y = 0; y < grid.getRows(); y++) {
-        if (grid.get(x, y) != 0) {
-          count++;
-        }
-      }
-
-      if (count == grid.getRows()) {
-        linesCleared++;
-        for (var y = 0; y < grid.getRows(); y++) {
-          clear.add(grid.getGridProperty(x, y));
-          clearedLines.add(new GameBlockCoordinate(x, y));
-        }
-      }
-    }
-
-    //Checking for Vertical lines (Columns).
-    for (var y = 0; y < grid.getRows(); y++) {
-      int count = 0;
-      for (var x = 0; x < grid.getCols(); x++) {
-        if (grid.get(x, y) == 0) {
-          break;
-        }
-        count++;
-      }
-      if (count == grid.getCols()) {
-        linesCleared++;
-        for (var x = 0; x < grid.getCols(); x++) {
-          clear.add(grid.getGridProperty(x, y));
-          clearedLines.add(new GameBlockCoordinate(x, y));
-        }
-      }
-    }
-
-    //Check for if lines are cleared.
-    if (linesCleared > 0) {
-      // Update the score.
-      score(linesCleared, clear.size());
-      // Update the multiplier.
-      multiplier.set(multiplier.add(1).get());
-      // Update the level.
-      level.set(Math.floorDiv(score.get(), 1000));
-      Multimedia.playAudio("level.wav");
-      if (lineClearedListener != null) {
-        lineClearedListener.lineCleared(clearedLines);
-      }
-      //clearing blocks
-      for (IntegerProperty block : clear) {
-        block.set(0);
-      }
-    } else {
-      // Reset the multiplier.
-      if (multiplier.get() > 1) {
-        logger.info("Resat the Multiplier");
-        multiplier.set(1);
+    post(() -> {
+      if (paused) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.rotate(x);
+      }
+      engine.rotate(x);
+    });
+  }
+
+  /**
+   * Convert a set of cells of the grid into the coordinates of the blocks, for the UI.
+   *
+   * @param cells set of cells made by the BitGrid
+   * @return coordinates of every cell in the set
+   */
+  private HashSet<GameBlockCoordinate> toCoordinates(long[] cells) {
+    var coordinates = new HashSet<GameBlockCoordinate>();
+    for (var word = 0; word < cells.length; word++) {
+      long bits = cells[word];
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        coordinates.add(new GameBlockCoordinate(index % cols, index / cols));
+        bits &= bits - 1;
       }
     }
+    return coordinates;
   }
 
   /**
    * Calculation for time in each round.
    *
-   * @return time for each round
+   * @return time for each round, as of the last countdown started
    */
   public int getTimerDelay() {
-    int max = 12000 - (500 * level.get());
-    int max2 = 2500;
-    return Math.max(max, max2);
+    return countdown;
+  }
+
+  /**
+   * Get the time left for the current piece, from the deadline the game loop set. A paused countdown keeps the time
+   * it had left when it was paused.
+   *
+   * @param now the current System.nanoTime
+   * @return nanoseconds left, never negative
+   */
+  public long getTimeLeft(long now) {
+    if (countdownPaused) {
+      return countdownLeft;
+    }
+    return Math.max(countdownDeadline - now, 0);
   }
 
   /**
-   * Calculates score.
+   * Check whether the game is paused.
    *
-   * @param numberOfLines  number of lines cleared
-   * @param numberOfBlocks number of blocks cleared
+   * @return true if paused
    */
-  public void score(int numberOfLines, int numberOfBlocks) {
-    // Get the multiplier.
-    int multiplier = this.multiplier.get();
-    //Check for the number of lines cleared.
-    scoreProperty().set(score.add(numberOfLines * numberOfBlocks * multiplier * 10).get());
+  public boolean isPaused() {
+    return countdownPaused;
   }
 
   /**
    * Adds a life to the player.
    */
   public void addLife(){
-    if(score.get() >= 500){
-      lives.set(lives.get() + 1);
-      score.set(score.get() - 500);
-      Multimedia.playAudio("lifegain.wav");
-      logger.info("Life added. Lives updated to: " + lives.get());
-    } else {
-      Multimedia.playAudio("fail.wav");
-      logger.info("Not enough points to add life. Score: " + score.get());
-    }
-
+    post(() -> {
+      if (paused) {
+        return;
+      }
+      if (recorder != null) {
+        recorder.addLife();
+      }
+      var before = engine.snapshot(history.latest());
+      if (engine.addLife()) {
+        history.record(before);
+        building.sounds.add("lifegain.wav");
+        logger.info("Life added. Lives updated to: " + engine.getLives());
+      } else {
+        building.sounds.add("fail.wav");
+        logger.info("Not enough points to add life. Score: " + engine.getScore());
+      }
+    });
   }
 
   /**
-   * Removes life after every game loop and checks if the game is over.
+   * Removes life after every game loop and checks if the game is over. Runs on the game loop.
    */
-  public void updateLives() {
+  private void updateLives() {
     logger.info("Into livesReset");
-    if (lives.get() > 0) {
-      lives.set(lives.get() - 1);
-      logger.info("Lives: " + lives.get());
-      Multimedia.playAudio("lifelose.wav");
-    } else {
+    if (recorder != null) {
+      recorder.timeout();
+    }
+    var before = engine.snapshot(history.latest());
+    if (engine.timeout()) {
+      history.record(before);
+      logger.info("Lives: " + engine.getLives());
+      building.sounds.add("lifelose.wav");
+    }
+  }
+
+  /**
+   * Gathers the changes to the state of the engine, and the sounds for what happens in the game, into the delta for
+   * the JavaFX thread. Runs on the game loop.
+   */
+  private class EngineListener implements GameEngineListener {
+
+    @Override
+    public void piecePlayed(GamePiece gamePiece, int x, int y) {
+      building.sounds.add("place.wav");
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.PiecePlayed(gamePiece, x, y));
+      }
+    }
+
+    @Override
+    public void pieceRejected(GamePiece gamePiece, int x, int y) {
+      building.sounds.add("fail.wav");
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.PieceRejected(gamePiece, x, y));
+      }
+    }
+
+    @Override
+    public void linesCleared(long[] cells, int lines, int blocks) {
+      building.sounds.add("level.wav");
+      building.cleared(cells);
+      if (events.hasSubscribers()) {
+        //The engine reuses its set of cleared cells, so the event needs a copy of its own
+        batch.add(new GameEvent.LinesCleared(cells.clone(), lines, blocks));
+      }
+    }
+
+    @Override
+    public void nextPiece(GamePiece currentPiece, GamePiece followingPiece) {
+      piecesChanged(currentPiece, followingPiece);
+      logger.info("current piece is now: " + currentPiece);
+    }
+
+    @Override
+    public void pieceRotated(GamePiece currentPiece) {
+      piecesChanged(currentPiece, engine.getFollowingPiece());
+    }
+
+    @Override
+    public void piecesSwapped(GamePiece currentPiece, GamePiece followingPiece) {
+      piecesChanged(currentPiece, followingPiece);
+    }
+
+    private void piecesChanged(GamePiece currentPiece, GamePiece followingPiece) {
+      building.changed |= GameDelta.PIECES;
+      building.currentPiece = currentPiece;
+      building.followingPiece = followingPiece;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.PiecesChanged(currentPiece, followingPiece));
+      }
+    }
+
+    @Override
+    public void scoreChanged(int score) {
+      building.changed |= GameDelta.SCORE;
+      building.score = score;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.ScoreChanged(score));
+      }
+    }
+
+    @Override
+    public void levelChanged(int level) {
+      building.changed |= GameDelta.LEVEL;
+      building.level = level;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.LevelChanged(level));
+      }
+    }
+
+    @Override
+    public void livesChanged(int lives) {
+      building.changed |= GameDelta.LIVES;
+      building.lives = lives;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.LivesChanged(lives));
+      }
+    }
+
+    @Override
+    public void multiplierChanged(int multiplier) {
+      if (multiplier == 1) {
+        logger.info("Resat the Multiplier");
+      }
+      building.changed |= GameDelta.MULTIPLIER;
+      building.multiplier = multiplier;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.MultiplierChanged(multiplier));
+      }
+    }
+
+    @Override
+    public void gameOver() {
       logger.info("Game Over");
-      Multimedia.playBackgroundMusic("end.wav");
-      Platform.runLater(() -> gameOverListener.gameOver());
+      building.changed |= GameDelta.GAME_OVER;
+      if (events.hasSubscribers()) {
+        batch.add(new GameEvent.GameOver(engine.getScore()));
+      }
     }
   }
 
   /**
-   * Listens for next Piece.
+   * Record the actions of the player from now on. The recording ends when the timer is stopped.
+   *
+   * @param recorder recorder to write to
+   */
+  public void setRecorder(ReplayRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Make this a practice game, which can undo and redo moves. A practice game's score is not kept. Must be called
+   * before the game starts.
+   *
+   * @param practice true for a practice game
+   */
+  public void setPractice(boolean practice) {
+    this.practice = practice;
+  }
+
+  /**
+   * Check whether this is a practice game.
+   *
+   * @return true if moves can be undone and the score is not kept
+   */
+  public boolean isPractice() {
+    return practice;
+  }
+
+  /**
+   * Check whether the score of this game can go on the high score table: it is not practice, and it is played on the
+   * standard board, so it can be compared with the other scores.
+   *
+   * @return true if the score is kept
+   */
+  public boolean isRanked() {
+    return !practice && cols == Config.DEFAULT_BOARD_SIZE && rows == Config.DEFAULT_BOARD_SIZE;
+  }
+
+  /**
+   * Get the bus the events of the game are published on. Subscribe before starting the game to hear every event.
+   *
+   * @return the event bus
+   */
+  public GameEventBus getEvents() {
+    return events;
+  }
+
+  /**
+   * Get the time the game loop spent on the last action it handled, such as a piece being played or the countdown
+   * running out. The game loop runs beside the JavaFX thread, so this only holds up the frames when the loop falls
+   * behind.
+   *
+   * @return time in nanoseconds
+   */
+  public long getActionTime() {
+    return actionTime;
+  }
+
+  /**
+   * Get the time the JavaFX thread spent applying the last changes made by the game loop, including the listeners it
+   * called. Must be called on the JavaFX thread.
+   *
+   * @return time in nanoseconds
+   */
+  public long getApplyTime() {
+    return applyTime;
+  }
+
+  /**
+   * Listens for next Piece. The listener is also told when the pieces are rotated or swapped, as both pieces shown
+   * may have changed.
    *
    * @param nextPieceListener nextPieceListener
    */
@@ -396,15 +893,6 @@ public class Game {
     this.gameLoopListener = gameLoopListener;
   }
 
-  /**
-   * Listens for the game loop countdown.
-   */
-  public void gameLoopListener() {
-    if (gameLoopListener != null) {
-      gameLoopListener.gameLoop(getTimerDelay());
-    }
-  }
-
   /**
    * Handles events when game is finished.
    *
@@ -0,0 +1,187 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A GameDelta gathers every change the engine makes while the game loop handles events, so the changes can be handed
+ * to the JavaFX thread in one go. Later changes replace earlier ones: only the latest value of each property and cell
+ * is kept, so however many events are handled before the JavaFX thread catches up, it applies a single delta.
+
+ * A delta is written by one thread at a time. The Game hands deltas between the threads under a lock.
+ */
+final class GameDelta {
+
+  /**
+   * Flags for the parts of the state that have changed.
+   */
+  static final int SCORE = 1;
+  static final int LEVEL = 1 << 1;
+  static final int LIVES = 1 << 2;
+  static final int MULTIPLIER = 1 << 3;
+  static final int PIECES = 1 << 4;
+  static final int COUNTDOWN = 1 << 5;
+  static final int GAME_OVER = 1 << 6;
+  static final int RESTART = 1 << 7;
+
+  /**
+   * The parts of the state that have changed.
+   */
+  int changed;
+
+  int score;
+  int level;
+  int lives;
+  int multiplier;
+  GamePiece currentPiece;
+  GamePiece followingPiece;
+
+  /**
+   * The state of the countdown: its full length in milliseconds, the System.nanoTime it runs out at, whether it is
+   * paused, and the nanoseconds it had left when it was paused.
+   */
+  int countdown;
+  long deadline;
+  boolean paused;
+  long remaining;
+
+  /**
+   * The latest value of every cell, only meaningful for the cells in dirty.
+   */
+  final byte[] cells;
+
+  /**
+   * Cells that have changed.
+   */
+  final long[] dirty;
+
+  /**
+   * Cells that were cleared as part of a line.
+   */
+  final long[] cleared;
+
+  /**
+   * Sounds to play, in order.
+   */
+  final ArrayList<String> sounds = new ArrayList<>();
+
+  /**
+   * Create an empty delta for a grid.
+   *
+   * @param grid the grid of the game
+   */
+  GameDelta(BitGrid grid) {
+    cells = new byte[grid.getCols() * grid.getRows()];
+    dirty = grid.newCellSet();
+    cleared = grid.newCellSet();
+  }
+
+  /**
+   * Check whether there is nothing in this delta.
+   *
+   * @return true if nothing has changed
+   */
+  boolean isEmpty() {
+    if (changed != 0 || !sounds.isEmpty()) {
+      return false;
+    }
+    for (long word : dirty) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    for (long word : cleared) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Record a changed cell.
+   *
+   * @param index cell index, y * cols + x
+   * @param value the new value
+   */
+  void cell(int index, int value) {
+    cells[index] = (byte) value;
+    dirty[index >>> 6] |= 1L << index;
+  }
+
+  /**
+   * Record every cell of a grid as changed.
+   *
+   * @param grid the grid
+   */
+  void allCells(BitGrid grid) {
+    int cols = grid.getCols();
+    for (var index = 0; index < cells.length; index++) {
+      cell(index, grid.get(index % cols, index / cols));
+    }
+  }
+
+  /**
+   * Record cells cleared as part of a line.
+   *
+   * @param cells set of cells made by the BitGrid
+   */
+  void cleared(long[] cells) {
+    for (var word = 0; word < cells.length; word++) {
+      cleared[word] |= cells[word];
+    }
+  }
+
+  /**
+   * Add the changes in a later delta to this one.
+   *
+   * @param later the later delta
+   */
+  void merge(GameDelta later) {
+    if ((later.changed & SCORE) != 0) {
+      score = later.score;
+    }
+    if ((later.changed & LEVEL) != 0) {
+      level = later.level;
+    }
+    if ((later.changed & LIVES) != 0) {
+      lives = later.lives;
+    }
+    if ((later.changed & MULTIPLIER) != 0) {
+      multiplier = later.multiplier;
+    }
+    if ((later.changed & PIECES) != 0) {
+      currentPiece = later.currentPiece;
+      followingPiece = later.followingPiece;
+    }
+    if ((later.changed & COUNTDOWN) != 0) {
+      countdown = later.countdown;
+      deadline = later.deadline;
+      paused = later.paused;
+      remaining = later.remaining;
+    }
+    changed |= later.changed;
+
+    for (var word = 0; word < dirty.length; word++) {
+      long bits = later.dirty[word];
+      dirty[word] |= bits;
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        cells[index] = later.cells[index];
+        bits &= bits - 1;
+      }
+    }
+    cleared(later.cleared);
+    sounds.addAll(later.sounds);
+  }
+
+  /**
+   * Empty this delta, to be used again.
+   */
+  void clear() {
+    changed = 0;
+    Arrays.fill(dirty, 0L);
+    Arrays.fill(cleared, 0L);
+    sounds.clear();
+  }
+}
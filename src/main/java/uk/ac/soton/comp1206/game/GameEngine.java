@@ -0,0 +1,440 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import uk.ac.soton.comp1206.event.GameEngineListener;
+
+/**
+ * The GameEngine holds the rules and state of a TetrECS game using plain Java types only. It does not depend on JavaFX
+ * or on any audio, and does not run a clock of its own: the owner decides when the time for a piece has run out and
+ * calls timeout.
+
+ * Changes to the state are reported to a GameEngineListener. The Game class adapts the engine for the JavaFX UI, and
+ * the engine can be used on its own for headless play and simulation.
+ */
+public class GameEngine {
+
+  /**
+   * The number of lives at the start of a game.
+   */
+  public static final int STARTING_LIVES = 3;
+
+  /**
+   * The score that has to be spent to buy a life.
+   */
+  public static final int LIFE_COST = 500;
+
+  /**
+   * The grid holding the state of the board.
+   */
+  private final BitGrid grid;
+
+  /**
+   * Reused set of cells cleared by the last piece played.
+   */
+  private final long[] cleared;
+
+  /**
+   * Deals the pieces.
+   */
+  private final PieceGenerator generator;
+
+  /**
+   * Listener told about every change to the state.
+   */
+  private GameEngineListener listener = null;
+
+  /**
+   * The piece currently being controlled by the player.
+   */
+  private GamePiece currentPiece;
+
+  /**
+   * The piece following the currentPiece.
+   */
+  private GamePiece followingPiece;
+
+  private int score = 0;
+  private int level = 0;
+  private int lives = STARTING_LIVES;
+  private int multiplier = 1;
+  private boolean gameOver = false;
+
+  /**
+   * Create a new engine with an empty grid of the specified columns and rows, dealing pieces at random.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   */
+  public GameEngine(int cols, int rows) {
+    this(cols, rows, new UniformPieceGenerator(System.nanoTime()));
+  }
+
+  /**
+   * Create a new engine with an empty grid of the specified columns and rows, dealing pieces from the given generator.
+   *
+   * @param cols      number of columns
+   * @param rows      number of rows
+   * @param generator deals the pieces
+   */
+  public GameEngine(int cols, int rows, PieceGenerator generator) {
+    this.grid = new BitGrid(cols, rows);
+    this.cleared = grid.newCellSet();
+    this.generator = generator;
+  }
+
+  /**
+   * Deal the first two pieces.
+   */
+  public void start() {
+    followingPiece = spawnPiece();
+    nextPiece();
+  }
+
+  /**
+   * Deal a new piece from the generator.
+   *
+   * @return new GamePiece
+   */
+  public GamePiece spawnPiece() {
+    return generator.next();
+  }
+
+  /**
+   * Make the following piece current and deal a new following piece.
+   */
+  public void nextPiece() {
+    currentPiece = followingPiece;
+    followingPiece = spawnPiece();
+    if (listener != null) {
+      listener.nextPiece(currentPiece, followingPiece);
+    }
+  }
+
+  /**
+   * Play the current piece with its centre at the given position, clear any full lines and deal the next piece.
+   *
+   * @param x column
+   * @param y row
+   * @return true if the piece was played, false if it does not fit there
+   */
+  public boolean place(int x, int y) {
+    var piece = currentPiece;
+    if (gameOver || !grid.playPiece(piece, x, y)) {
+      if (listener != null) {
+        listener.pieceRejected(piece, x, y);
+      }
+      return false;
+    }
+    if (listener != null) {
+      listener.piecePlayed(piece, x, y);
+    }
+    afterPiece(piece, x, y);
+    nextPiece();
+    return true;
+  }
+
+  /**
+   * Make a complete move: swap in the following piece if asked, rotate the piece, and play it.
+   *
+   * @param move packed move, as made by Move.of
+   * @return true if the piece was played
+   */
+  public boolean play(int move) {
+    if (move == Move.NONE) {
+      return false;
+    }
+    if (Move.isSwap(move)) {
+      swap();
+    }
+    if (Move.rotations(move) != 0) {
+      rotate(Move.rotations(move));
+    }
+    return place(Move.x(move), Move.y(move));
+  }
+
+  /**
+   * Clear the full lines touched by a piece that has just been played and update the score, multiplier and level.
+   *
+   * @param gamePiece the piece that was played
+   * @param x         x position the piece was played at
+   * @param y         y position the piece was played at
+   * @return the number of lines cleared
+   */
+  public int afterPiece(GamePiece gamePiece, int x, int y) {
+    Arrays.fill(cleared, 0L);
+    int lines = grid.findFullLines(gamePiece, x, y, cleared);
+    if (lines == 0) {
+      setMultiplier(1);
+      return 0;
+    }
+    int blocks = 0;
+    for (long word : cleared) {
+      blocks += Long.bitCount(word);
+    }
+    score(lines, blocks);
+    setMultiplier(multiplier + 1);
+    setLevel(Math.floorDiv(score, 1000));
+    if (listener != null) {
+      listener.linesCleared(cleared, lines, blocks);
+    }
+    grid.clearCells(cleared);
+    return lines;
+  }
+
+  /**
+   * Add to the score for clearing lines.
+   *
+   * @param numberOfLines  number of lines cleared
+   * @param numberOfBlocks number of blocks cleared
+   */
+  public void score(int numberOfLines, int numberOfBlocks) {
+    setScore(score + numberOfLines * numberOfBlocks * multiplier * 10);
+  }
+
+  /**
+   * Rotate the current piece.
+   *
+   * @param rotations number of quarter turns clockwise
+   */
+  public void rotate(int rotations) {
+    currentPiece = currentPiece.rotated(rotations);
+    if (listener != null) {
+      listener.pieceRotated(currentPiece);
+    }
+  }
+
+  /**
+   * Swap the current piece with the following piece.
+   */
+  public void swap() {
+    var piece = currentPiece;
+    currentPiece = followingPiece;
+    followingPiece = piece;
+    if (listener != null) {
+      listener.piecesSwapped(currentPiece, followingPiece);
+    }
+  }
+
+  /**
+   * Spend score on an extra life, if there is enough.
+   *
+   * @return true if a life was added
+   */
+  public boolean addLife() {
+    if (gameOver || score < LIFE_COST) {
+      return false;
+    }
+    setLives(lives + 1);
+    setScore(score - LIFE_COST);
+    return true;
+  }
+
+  /**
+   * Handle the time for the current piece running out. A life is lost, or the game ends if there are none left. The
+   * multiplier is reset and the next piece is dealt.
+   *
+   * @return true if the game is still running
+   */
+  public boolean timeout() {
+    if (gameOver) {
+      return false;
+    }
+    if (lives == 0) {
+      gameOver = true;
+      if (listener != null) {
+        listener.gameOver();
+      }
+      return false;
+    }
+    setLives(lives - 1);
+    setMultiplier(1);
+    nextPiece();
+    return true;
+  }
+
+  /**
+   * Take a snapshot of the state of the game, to restore later. The cells are shared with the previous snapshot if the
+   * board has not changed since.
+   *
+   * @param previous the snapshot taken before, or null
+   * @return the snapshot
+   */
+  public Snapshot snapshot(Snapshot previous) {
+    long[] cells;
+    byte[] colours;
+    if (previous != null && previous.hash == grid.getHash()) {
+      cells = previous.occupancy;
+      colours = previous.colours;
+    } else {
+      cells = grid.copyOccupancy();
+      colours = grid.packColours();
+    }
+    return new Snapshot(cells, colours, grid.getHash(), currentPiece.getId(), followingPiece.getId(), score, level,
+        lives, multiplier);
+  }
+
+  /**
+   * Put the game back to the state in a snapshot. The board is restored in one go, and the listener is told about the
+   * pieces and about every value that changes.
+   *
+   * @param snapshot a snapshot taken of this game
+   */
+  public void restore(Snapshot snapshot) {
+    grid.restore(snapshot.occupancy, snapshot.colours);
+    gameOver = false;
+    setScore(snapshot.score);
+    setLevel(snapshot.level);
+    setLives(snapshot.lives);
+    setMultiplier(snapshot.multiplier);
+    currentPiece = GamePiece.fromId(snapshot.currentPiece);
+    followingPiece = GamePiece.fromId(snapshot.followingPiece);
+    if (listener != null) {
+      listener.nextPiece(currentPiece, followingPiece);
+    }
+  }
+
+  /**
+   * Check whether neither the current nor the following piece can be played anywhere in any rotation, so the only
+   * thing left is for the time to run out.
+   *
+   * @return true if there is no legal move
+   */
+  public boolean isStuck() {
+    return grid.isStuck(currentPiece, followingPiece);
+  }
+
+  /**
+   * Calculation for time in each round.
+   *
+   * @return time for each round in milliseconds
+   */
+  public int getTimerDelay() {
+    return Math.max(12000 - (500 * level), 2500);
+  }
+
+  private void setScore(int score) {
+    if (this.score != score) {
+      this.score = score;
+      if (listener != null) {
+        listener.scoreChanged(score);
+      }
+    }
+  }
+
+  private void setLevel(int level) {
+    if (this.level != level) {
+      this.level = level;
+      if (listener != null) {
+        listener.levelChanged(level);
+      }
+    }
+  }
+
+  private void setLives(int lives) {
+    if (this.lives != lives) {
+      this.lives = lives;
+      if (listener != null) {
+        listener.livesChanged(lives);
+      }
+    }
+  }
+
+  private void setMultiplier(int multiplier) {
+    if (this.multiplier != multiplier) {
+      this.multiplier = multiplier;
+      if (listener != null) {
+        listener.multiplierChanged(multiplier);
+      }
+    }
+  }
+
+  /**
+   * Set the listener to be told about every change to the state.
+   *
+   * @param listener listener to set
+   */
+  public void setListener(GameEngineListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Get the grid holding the state of the board.
+   *
+   * @return the grid
+   */
+  public BitGrid getGrid() {
+    return grid;
+  }
+
+  /**
+   * Get the generator dealing the pieces, which can be used to preview the pieces after the following piece.
+   *
+   * @return the generator
+   */
+  public PieceGenerator getGenerator() {
+    return generator;
+  }
+
+  /**
+   * Get the current piece being played.
+   *
+   * @return currentPiece
+   */
+  public GamePiece getCurrentPiece() {
+    return currentPiece;
+  }
+
+  /**
+   * Get the next piece to be played.
+   *
+   * @return followingPiece
+   */
+  public GamePiece getFollowingPiece() {
+    return followingPiece;
+  }
+
+  /**
+   * Get the score.
+   *
+   * @return score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get the level.
+   *
+   * @return level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Get the number of lives left.
+   *
+   * @return lives
+   */
+  public int getLives() {
+    return lives;
+  }
+
+  /**
+   * Get the multiplier.
+   *
+   * @return multiplier
+   */
+  public int getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Check whether the game has ended.
+   *
+   * @return true if the game is over
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+}
@@ -4,8 +4,11 @@ package uk.ac.soton.comp1206.game;
  * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
+
+ * Every piece in every rotation is built once, so a GamePiece is an immutable (piece, rotation) pair that can be
+ * compared by identity. Rotating a piece returns another shared instance.
  */
-public class GamePiece {
+public final class GamePiece {
 
   /**
    * The total number of pieces in this game.
@@ -13,9 +16,29 @@ public class GamePiece {
   public static final int PIECES = 15;
 
   /**
-   * The 2D grid representation of the shape of this piece.
+   * The number of rotations of every piece.
+   */
+  public static final int ROTATIONS = 4;
+
+  /**
+   * Every piece in every rotation, indexed by piece number * ROTATIONS + rotation. Built once and shared.
+   */
+  private static final GamePiece[] PIECE_TABLE = buildPieces();
+
+  /**
+   * The number of this piece.
+   */
+  private final int type;
+
+  /**
+   * The rotation of this piece, from 0 to 3.
    */
-  private int[][] blocks;
+  private final int rotation;
+
+  /**
+   * The shape of this piece in its rotation.
+   */
+  private final PieceShape shape;
 
   /**
    * The value of this piece.
@@ -28,101 +51,172 @@ public class GamePiece {
   private final String name;
 
   /**
-   * Create a new GamePiece of the specified piece number.
+   * Get the piece of the specified piece number, in its starting rotation.
    *
    * @param piece piece number
-   * @return the created GamePiece
+   * @return the GamePiece
    */
   public static GamePiece createPiece(int piece) {
+    return createPiece(piece, 0);
+  }
+
+  /**
+   * Get the piece of the specified piece number and rotation.
+   *
+   * @param piece    piece number
+   * @param rotation number of times to rotate
+   * @return the GamePiece
+   */
+  public static GamePiece createPiece(int piece, int rotation) {
+    if (piece < 0 || piece >= PIECES) {
+      //Not a valid piece number
+      throw new IndexOutOfBoundsException("No such piece: " + piece);
+    }
+    return PIECE_TABLE[piece * ROTATIONS + Math.floorMod(rotation, ROTATIONS)];
+  }
+
+  /**
+   * Get a piece by the id of its shape.
+   *
+   * @param id shape id, as given by getId
+   * @return the GamePiece
+   */
+  public static GamePiece fromId(int id) {
+    return PIECE_TABLE[id];
+  }
+
+  /**
+   * Build every piece in every rotation.
+   *
+   * @return the pieces, indexed by piece number * ROTATIONS + rotation
+   */
+  private static GamePiece[] buildPieces() {
+    var pieces = new GamePiece[PIECES * ROTATIONS];
+    for (var piece = 0; piece < PIECES; piece++) {
+      var definition = definePiece(piece);
+      int mask = 0;
+      for (var x = 0; x < 3; x++) {
+        for (var y = 0; y < 3; y++) {
+          if (definition.blocks[x][y] != 0) {
+            mask |= 1 << (y * 3 + x);
+          }
+        }
+      }
+      for (var rotation = 0; rotation < ROTATIONS; rotation++) {
+        var shape = new PieceShape(piece, rotation, definition.value, mask);
+        pieces[piece * ROTATIONS + rotation] = new GamePiece(definition.name, shape);
+        mask = PieceShape.rotateMask(mask);
+      }
+    }
+    return pieces;
+  }
+
+  /**
+   * The starting block makeup, name and value of a piece.
+   *
+   * @param name   name of the piece
+   * @param blocks block makeup of the piece
+   * @param value  the value of this piece
+   */
+  private record Definition(String name, int[][] blocks, int value) {
+  }
+
+  /**
+   * Define the piece of the specified piece number.
+   *
+   * @param piece piece number
+   * @return the definition of the piece
+   */
+  private static Definition definePiece(int piece) {
     switch (piece) {
       //Line
       case 0 -> {
         int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-        return new GamePiece("Line", blocks, 1);
+        return new Definition("Line", blocks, 1);
       }
 
       //C
       case 1 -> {
         int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-        return new GamePiece("C", blocks, 2);
+        return new Definition("C", blocks, 2);
       }
 
       //Plus
       case 2 -> {
         int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-        return new GamePiece("Plus", blocks, 3);
+        return new Definition("Plus", blocks, 3);
       }
 
       //Dot
       case 3 -> {
         int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-        return new GamePiece("Dot", blocks, 4);
+        return new Definition("Dot", blocks, 4);
       }
 
       //Square
       case 4 -> {
         int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-        return new GamePiece("Square", blocks, 5);
+        return new Definition("Square", blocks, 5);
       }
 
       //L
       case 5 -> {
         int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-        return new GamePiece("L", blocks, 6);
+        return new Definition("L", blocks, 6);
       }
 
       //J
       case 6 -> {
         int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-        return new GamePiece("J", blocks, 7);
+        return new Definition("J", blocks, 7);
       }
 
       //S
       case 7 -> {
         int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-        return new GamePiece("S", blocks, 8);
+        return new Definition("S", blocks, 8);
       }
 
       //Z
       case 8 -> {
         int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-        return new GamePiece("Z", blocks, 9);
+        return new Definition("Z", blocks, 9);
       }
 
       //T
       case 9 -> {
         int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-        return new GamePiece("T", blocks, 10);
+        return new Definition("T", blocks, 10);
       }
 
       //X
       case 10 -> {
         int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-        return new GamePiece("X", blocks, 11);
+        return new Definition("X", blocks, 11);
       }
 
       //Corner
       case 11 -> {
         int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-        return new GamePiece("Corner", blocks, 12);
+        return new Definition("Corner", blocks, 12);
       }
 
       //Inverse Corner
       case 12 -> {
         int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-        return new GamePiece("Inverse Corner", blocks, 13);
+        return new Definition("Inverse Corner", blocks, 13);
       }
 
       //Diagonal
       case 13 -> {
         int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-        return new GamePiece("Diagonal", blocks, 14);
+        return new Definition("Diagonal", blocks, 14);
       }
 
       //Double
       case 14 -> {
         int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-        return new GamePiece("Double", blocks, 15);
+        return new Definition("Double", blocks, 15);
       }
     }
 
@@ -131,92 +225,103 @@ public class GamePiece {
   }
 
   /**
-   * Create a new GamePiece of the specified piece number and rotation.
+   * Create a new GamePiece with the given name and shape. Should not be called directly, only when building the
+   * shared table of pieces.
    *
-   * @param piece    piece number
-   * @param rotation number of times to rotate
-   * @return the created GamePiece
+   * @param name  name of the piece
+   * @param shape shape of the piece in its rotation
    */
-  public static GamePiece createPiece(int piece, int rotation) {
-    var newPiece = createPiece(piece);
+  private GamePiece(String name, PieceShape shape) {
+    this.name = name;
+    this.shape = shape;
+    this.type = shape.getType();
+    this.rotation = shape.getRotation();
+    this.value = shape.getValue();
+  }
 
-    newPiece.rotate(rotation);
-    return newPiece;
+  /**
+   * Get the value of this piece.
+   *
+   * @return piece value
+   */
+  public int getValue() {
+    return value;
   }
 
   /**
-   * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the,
-   * factory.
+   * Get the number of this piece.
    *
-   * @param name   name of the piece
-   * @param blocks block makeup of the piece
-   * @param value  the value of this piece
+   * @return piece number
    */
-  private GamePiece(String name, int[][] blocks, int value) {
-    this.name = name;
-    this.blocks = blocks;
-    this.value = value;
-
-    //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
-    for (int x = 0; x < blocks.length; x++) {
-      for (int y = 0; y < blocks[x].length; y++) {
-        if (blocks[x][y] == 0) {
-          continue;
-        }
-        blocks[x][y] = value;
-      }
-    }
+  public int getType() {
+    return type;
   }
 
   /**
-   * Get the value of this piece.
+   * Get the rotation of this piece.
    *
-   * @return piece value
+   * @return rotation from 0 to 3
    */
-  public int getValue() {
-    return value;
+  public int getRotation() {
+    return rotation;
+  }
+
+  /**
+   * Get a number unique to this piece and rotation, from 0 to PIECES * ROTATIONS - 1.
+   *
+   * @return piece id
+   */
+  public int getId() {
+    return type * ROTATIONS + rotation;
   }
 
   /**
-   * Get the block makeup of this piece.
+   * Get the shape of this piece in its rotation.
+   *
+   * @return the shape
+   */
+  public PieceShape getShape() {
+    return shape;
+  }
+
+  /**
+   * Get the block makeup of this piece. The returned grid is a copy.
    *
    * @return 2D grid of the blocks representing the piece shape
    */
   public int[][] getBlocks() {
-    return blocks;
+    return shape.toBlocks();
   }
 
   /**
-   * Rotate this piece the given number of rotations.
+   * Get this piece rotated the given number of rotations. Pieces are shared and never change, so this only looks up
+   * another entry of the table.
    *
    * @param rotations number of rotations
+   * @return the rotated piece
    */
-  public void rotate(int rotations) {
-    for (int rotated = 0; rotated < rotations; rotated++) {
-      rotate();
-    }
+  public GamePiece rotated(int rotations) {
+    return PIECE_TABLE[type * ROTATIONS + ((rotation + rotations) & (ROTATIONS - 1))];
   }
 
   /**
-   * Rotate this piece exactly once by rotating it's 3x3 grid.
+   * Get this piece rotated exactly once.
+   *
+   * @return the rotated piece
    */
-  public void rotate() {
-    int[][] rotated = new int[blocks.length][blocks[0].length];
-    rotated[2][0] = blocks[0][0];
-    rotated[1][0] = blocks[0][1];
-    rotated[0][0] = blocks[0][2];
-
-    rotated[2][1] = blocks[1][0];
-    rotated[1][1] = blocks[1][1];
-    rotated[0][1] = blocks[1][2];
-
-    rotated[2][2] = blocks[2][0];
-    rotated[1][2] = blocks[2][1];
-    rotated[0][2] = blocks[2][2];
-
-    blocks = rotated;
+  public GamePiece rotated() {
+    return rotated(1);
   }
 
+  /**
+   * Every piece and rotation has a single instance, so the id is a perfect hash.
+   *
+   * @return the id of this piece
+   */
+  @Override
+  public int hashCode() {
+    return getId();
+  }
 
   /**
    * Return the string representation of this piece.
@@ -1,16 +1,18 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.CellChangedListener;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
 
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * The values are stored in a BitGrid. Each value can also be viewed as an IntegerProperty, which can be bound to
+ * enable display of the contents of the grid. The properties are only created when they are first asked for, so a
+ * view that draws the grid itself can listen for changed cells instead and the grid never needs a property per cell.
 
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  * The Grid should be linked to a GameBoard for it's display.
@@ -28,9 +30,19 @@ public class Grid {
   private final int rows;
 
   /**
-   * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+   * The storage holding the value of every cell.
    */
-  private final SimpleIntegerProperty[][] grid;
+  private final BitGrid bitGrid;
+
+  /**
+   * The view of the grid as a 2D arrow with rows and columns of properties. Created on first use.
+   */
+  private ReadOnlyIntegerWrapper[][] grid;
+
+  /**
+   * The listener told about every changed cell.
+   */
+  private CellChangedListener cellChangedListener;
 
   private static final Logger logger = LogManager.getLogger(Grid.class);
 
@@ -41,18 +53,18 @@ public class Grid {
    * @param rows number of rows
    */
   public Grid(int cols, int rows) {
-    this.cols = cols;
-    this.rows = rows;
-
-    //Create the grid itself
-    grid = new SimpleIntegerProperty[cols][rows];
+    this(new BitGrid(cols, rows));
+  }
 
-    //Add a SimpleIntegerProperty to every block in the grid
-    for (var y = 0; y < rows; y++) {
-      for (var x = 0; x < cols; x++) {
-        grid[x][y] = new SimpleIntegerProperty(0);
-      }
-    }
+  /**
+   * Create a new Grid viewing an existing BitGrid.
+   *
+   * @param bitGrid the storage to view
+   */
+  public Grid(BitGrid bitGrid) {
+    this.bitGrid = bitGrid;
+    this.cols = bitGrid.getCols();
+    this.rows = bitGrid.getRows();
   }
 
   /**
@@ -66,45 +78,19 @@ public class Grid {
    * @return true if piece can be played.
    */
   public boolean canPlayPiece(GamePiece gamePiece, int xValue, int yValue) {
-    int[][] blocks = gamePiece.getBlocks();
-    for (var x = 0; x < blocks.length; x++) {
-      for (var y = 0; y < blocks[x].length; y++) {
-        int val = blocks[x][y];
-        if (val != 0) {
-          int valueOnGrid = this.get(x + xValue - 1, y + yValue - 1);
-          if (valueOnGrid != 0) {
-            logger.info("Cannot be played here!");
-            return false;
-          }
-        }
-      }
-    }
-    logger.info("Can be played");
-    return true;
+    return bitGrid.canPlayPiece(gamePiece, xValue, yValue);
   }
 
   /**
    * takes a GamePiece and position x and y on the grid plays it.
-   * If the piece can't be played, it will inform error in logger and a fail sound.
+   * If the piece can't be played, it will inform error in logger.
    *
    * @param gamePiece piece to be played
    * @param xValue    x position
    * @param yValue    y position
    */
   public void playPiece(GamePiece gamePiece, int xValue, int yValue) {
-    int[][] blocks = gamePiece.getBlocks();
-    logger.info("Checking if the piece can be played.");
-    if (this.canPlayPiece(gamePiece, xValue, yValue)) {
-      for (var x = 0; x < blocks.length; x++) {
-        for (var y = 0; y < blocks[x].length; y++) {
-          int val = blocks[x][y];
-          if (val != 0) {
-            logger.info("Piece played");
-            this.set(x + xValue - 1, y + yValue - 1, val);
-          }
-        }
-      }
-    } else {
+    if (!bitGrid.playPiece(gamePiece, xValue, yValue)) {
       logger.error("Can't play the Piece");
     }
   }
@@ -117,8 +103,68 @@ public class Grid {
    * @param y row
    * @return the IntegerProperty at the given x and y in this grid
    */
-  public IntegerProperty getGridProperty(int x, int y) {
-    return grid[x][y];
+  public ReadOnlyIntegerProperty getGridProperty(int x, int y) {
+    if (grid == null) {
+      buildView();
+    }
+    return grid[x][y].getReadOnlyProperty();
+  }
+
+  /**
+   * Build the property view of the grid and keep it in step with the BitGrid.
+   */
+  private void buildView() {
+    grid = new ReadOnlyIntegerWrapper[cols][rows];
+    for (var y = 0; y < rows; y++) {
+      for (var x = 0; x < cols; x++) {
+        grid[x][y] = new ReadOnlyIntegerWrapper(bitGrid.get(x, y));
+      }
+    }
+    bitGrid.setOnCellChanged(new Dispatcher());
+  }
+
+  /**
+   * Set the listener to be told about every changed cell, for a view which draws the grid itself.
+   *
+   * @param listener listener to set
+   */
+  public void setOnCellChanged(CellChangedListener listener) {
+    this.cellChangedListener = listener;
+    bitGrid.setOnCellChanged(new Dispatcher());
+  }
+
+  /**
+   * Passes changes to the BitGrid on to the property view, if it has been built, and the listener.
+   */
+  private class Dispatcher implements CellChangedListener {
+
+    @Override
+    public void cellChanged(int x, int y, int value) {
+      if (grid != null) {
+        grid[x][y].set(value);
+      }
+      if (cellChangedListener != null) {
+        cellChangedListener.cellChanged(x, y, value);
+      }
+    }
+
+    @Override
+    public void cellsChanged() {
+      //Only cells whose value differs are set, so only their blocks are told
+      if (grid != null) {
+        for (var y = 0; y < rows; y++) {
+          for (var x = 0; x < cols; x++) {
+            int value = bitGrid.get(x, y);
+            if (grid[x][y].get() != value) {
+              grid[x][y].set(value);
+            }
+          }
+        }
+      }
+      if (cellChangedListener != null) {
+        cellChangedListener.cellsChanged();
+      }
+    }
   }
 
   /**
@@ -129,7 +175,7 @@ public class Grid {
    * @param value the new value
    */
   public void set(int x, int y, int value) {
-    grid[x][y].set(value);
+    bitGrid.set(x, y, value);
   }
 
   /**
@@ -137,16 +183,50 @@ public class Grid {
    *
    * @param x column
    * @param y row
-   * @return the value
+   * @return the value, or -1 if there is no such index
    */
   public int get(int x, int y) {
-    try {
-      //Get the value held in the property at the x and y index provided
-      return grid[x][y].get();
-    } catch (ArrayIndexOutOfBoundsException e) {
-      //No such index
-      return -1;
-    }
+    return bitGrid.get(x, y);
+  }
+
+  /**
+   * Get the Zobrist hash of the occupied cells, ignoring colours. It is kept up to date on every change, so reading it
+   * costs nothing. Combine it with the pieces using Zobrist.position to key a position.
+   *
+   * @return hash of the occupancy
+   */
+  public long getOccupancyHash() {
+    return bitGrid.getOccupancyHash();
+  }
+
+  /**
+   * Get the Zobrist hash of every cell and its colour.
+   *
+   * @return hash of the board
+   */
+  public long getHash() {
+    return bitGrid.getHash();
+  }
+
+  /**
+   * Get the hash of the canonical form of this grid and the pieces to play, which is the same for every turned or
+   * mirrored copy of the position.
+   *
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return canonical hash
+   */
+  public long getCanonicalHash(GamePiece currentPiece, GamePiece followingPiece) {
+    return Symmetry.canonicalHash(bitGrid, currentPiece, followingPiece);
+  }
+
+  /**
+   * Get the BitGrid holding the state of this grid.
+   *
+   * @return the BitGrid
+   */
+  public BitGrid getBitGrid() {
+    return bitGrid;
   }
 
   /**
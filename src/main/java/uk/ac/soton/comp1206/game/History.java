@@ -0,0 +1,96 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayDeque;
+
+/**
+ * The History holds the snapshots a game can be undone to and redone to. Recording, undoing and redoing each move a
+ * single snapshot from one stack to another, however long the game has been running.
+
+ * The History does not take snapshots itself. The owner records the state before each move, and hands over the current
+ * state when undoing or redoing, so it can be returned to.
+ */
+public class History {
+
+  /**
+   * States to undo to, the latest on top.
+   */
+  private final ArrayDeque<Snapshot> undo = new ArrayDeque<>();
+
+  /**
+   * States to redo to, the next on top.
+   */
+  private final ArrayDeque<Snapshot> redo = new ArrayDeque<>();
+
+  /**
+   * Record the state before a move. Anything that could be redone is forgotten.
+   *
+   * @param snapshot the state before the move
+   */
+  public void record(Snapshot snapshot) {
+    undo.push(snapshot);
+    redo.clear();
+  }
+
+  /**
+   * Step back to the state before the last move.
+   *
+   * @param current the current state, to be redone to
+   * @return the state to restore, or null if there is nothing to undo
+   */
+  public Snapshot undo(Snapshot current) {
+    if (undo.isEmpty()) {
+      return null;
+    }
+    redo.push(current);
+    return undo.pop();
+  }
+
+  /**
+   * Step forward to the state after the last move undone.
+   *
+   * @param current the current state, to be undone to
+   * @return the state to restore, or null if there is nothing to redo
+   */
+  public Snapshot redo(Snapshot current) {
+    if (redo.isEmpty()) {
+      return null;
+    }
+    undo.push(current);
+    return redo.pop();
+  }
+
+  /**
+   * Get the latest state recorded, which a new snapshot may share its cell data with.
+   *
+   * @return the latest snapshot, or null if there is none
+   */
+  public Snapshot latest() {
+    return undo.peek();
+  }
+
+  /**
+   * Forget every state.
+   */
+  public void clear() {
+    undo.clear();
+    redo.clear();
+  }
+
+  /**
+   * Get the number of moves that can be undone.
+   *
+   * @return number of states to undo to
+   */
+  public int getUndoCount() {
+    return undo.size();
+  }
+
+  /**
+   * Get the number of moves that can be redone.
+   *
+   * @return number of states to redo to
+   */
+  public int getRedoCount() {
+    return redo.size();
+  }
+}
@@ -0,0 +1,83 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A move is a complete turn for the current piece, packed into a single int so that searches and simulations can pass
+ * moves around without creating objects. A move optionally swaps in the following piece, rotates the piece, and then
+ * plays it with its centre at a column and row.
+ */
+public final class Move {
+
+  /**
+   * No move: the player lets the time for the piece run out.
+   */
+  public static final int NONE = -1;
+
+  private Move() {
+  }
+
+  /**
+   * Pack a move.
+   *
+   * @param x         column to play the centre of the piece at, from 0 to 255
+   * @param y         row to play the centre of the piece at, from 0 to 255
+   * @param rotations quarter turns clockwise to apply before playing, from 0 to 3
+   * @param swap      true to swap in the following piece first
+   * @return the packed move
+   */
+  public static int of(int x, int y, int rotations, boolean swap) {
+    return (x & 0xFF) | (y & 0xFF) << 8 | (rotations & 3) << 16 | (swap ? 1 << 18 : 0);
+  }
+
+  /**
+   * Get the column of a move.
+   *
+   * @param move packed move
+   * @return column
+   */
+  public static int x(int move) {
+    return move & 0xFF;
+  }
+
+  /**
+   * Get the row of a move.
+   *
+   * @param move packed move
+   * @return row
+   */
+  public static int y(int move) {
+    return (move >>> 8) & 0xFF;
+  }
+
+  /**
+   * Get the quarter turns of a move.
+   *
+   * @param move packed move
+   * @return rotations from 0 to 3
+   */
+  public static int rotations(int move) {
+    return (move >>> 16) & 3;
+  }
+
+  /**
+   * Check whether a move swaps in the following piece.
+   *
+   * @param move packed move
+   * @return true if the pieces are swapped first
+   */
+  public static boolean isSwap(int move) {
+    return (move & (1 << 18)) != 0;
+  }
+
+  /**
+   * Describe a move.
+   *
+   * @param move packed move
+   * @return readable description
+   */
+  public static String toString(int move) {
+    if (move == NONE) {
+      return "none";
+    }
+    return (isSwap(move) ? "swap, " : "") + "rotate " + rotations(move) + ", play at " + x(move) + ", " + y(move);
+  }
+}
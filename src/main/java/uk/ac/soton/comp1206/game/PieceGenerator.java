@@ -0,0 +1,40 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PieceGenerator deals the pieces of a game. Generators are seeded, so the same seed always deals the same pieces,
+ * which lets games be replayed, shared as a daily seed and simulated in parallel.
+
+ * Upcoming pieces are generated ahead into a queue, so they can be previewed before they are dealt.
+ */
+public interface PieceGenerator {
+
+  /**
+   * Deal the next piece.
+   *
+   * @return the next piece
+   */
+  GamePiece next();
+
+  /**
+   * Look at an upcoming piece without dealing it.
+   *
+   * @param ahead how many pieces ahead to look, where 0 is the piece the next call to next will deal
+   * @return the upcoming piece
+   * @throws IndexOutOfBoundsException if ahead is not less than the preview size
+   */
+  GamePiece peek(int ahead);
+
+  /**
+   * Get the number of upcoming pieces that can be looked at.
+   *
+   * @return preview size
+   */
+  int getPreviewSize();
+
+  /**
+   * Create a generator of the same kind with its own independent random stream, for use on another thread.
+   *
+   * @return the new generator
+   */
+  PieceGenerator split();
+}
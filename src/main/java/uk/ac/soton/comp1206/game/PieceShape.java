@@ -0,0 +1,243 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * An immutable description of one rotation of one piece. Every combination of piece and rotation has exactly one
+ * PieceShape, which is built once and shared.
+
+ * A shape is described by its occupancy mask within the 3x3 grid of the piece, the offsets of its cells from the
+ * centre block, and its bounding box relative to the centre block.
+ */
+public final class PieceShape {
+
+  /**
+   * The piece number this shape belongs to.
+   */
+  private final int type;
+
+  /**
+   * The rotation of the piece this shape represents, from 0 to 3.
+   */
+  private final int rotation;
+
+  /**
+   * The value (colour) of the blocks of this shape.
+   */
+  private final int value;
+
+  /**
+   * Occupancy of the 3x3 grid of the piece. Block (x, y) is bit y * 3 + x.
+   */
+  private final int mask;
+
+  /**
+   * The column offset of every block from the centre block.
+   */
+  private final int[] cellX;
+
+  /**
+   * The row offset of every block from the centre block.
+   */
+  private final int[] cellY;
+
+  /**
+   * The bounding box of the blocks, relative to the centre block.
+   */
+  private final int minX;
+  private final int maxX;
+  private final int minY;
+  private final int maxY;
+
+  /**
+   * Create a new shape from its 3x3 occupancy mask.
+   *
+   * @param type     piece number
+   * @param rotation rotation of the piece
+   * @param value    value of the blocks
+   * @param mask     occupancy of the 3x3 grid, block (x, y) is bit y * 3 + x
+   */
+  PieceShape(int type, int rotation, int value, int mask) {
+    this.type = type;
+    this.rotation = rotation;
+    this.value = value;
+    this.mask = mask;
+
+    int size = Integer.bitCount(mask);
+    cellX = new int[size];
+    cellY = new int[size];
+    int lowX = 1;
+    int highX = -1;
+    int lowY = 1;
+    int highY = -1;
+    var cell = 0;
+    for (var y = 0; y < 3; y++) {
+      for (var x = 0; x < 3; x++) {
+        if ((mask & (1 << (y * 3 + x))) == 0) {
+          continue;
+        }
+        cellX[cell] = x - 1;
+        cellY[cell] = y - 1;
+        cell++;
+        lowX = Math.min(lowX, x - 1);
+        highX = Math.max(highX, x - 1);
+        lowY = Math.min(lowY, y - 1);
+        highY = Math.max(highY, y - 1);
+      }
+    }
+    minX = lowX;
+    maxX = highX;
+    minY = lowY;
+    maxY = highY;
+  }
+
+  /**
+   * Get the mask of the shape rotated a quarter turn clockwise.
+   *
+   * @param mask occupancy of the 3x3 grid
+   * @return occupancy of the rotated grid
+   */
+  static int rotateMask(int mask) {
+    var rotated = 0;
+    for (var y = 0; y < 3; y++) {
+      for (var x = 0; x < 3; x++) {
+        if ((mask & (1 << (y * 3 + x))) != 0) {
+          //Block (x, y) moves to (2 - y, x)
+          rotated |= 1 << (x * 3 + 2 - y);
+        }
+      }
+    }
+    return rotated;
+  }
+
+  /**
+   * Get the piece number of this shape.
+   *
+   * @return piece number
+   */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Get the rotation of this shape.
+   *
+   * @return rotation from 0 to 3
+   */
+  public int getRotation() {
+    return rotation;
+  }
+
+  /**
+   * Get a number unique to this shape, from 0 to 4 * PIECES - 1.
+   *
+   * @return shape id
+   */
+  public int getId() {
+    return type * 4 + rotation;
+  }
+
+  /**
+   * Get the value of the blocks of this shape.
+   *
+   * @return value
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Get the occupancy of the 3x3 grid of this shape. Block (x, y) is bit y * 3 + x.
+   *
+   * @return occupancy mask
+   */
+  public int getMask() {
+    return mask;
+  }
+
+  /**
+   * Get the blocks of one row of the 3x3 grid as a 3 bit pattern, with the left column in the lowest bit.
+   *
+   * @param row row of the grid, from 0 to 2
+   * @return the pattern
+   */
+  public int getRowPattern(int row) {
+    return (mask >>> (row * 3)) & 7;
+  }
+
+  /**
+   * Get the number of blocks in this shape.
+   *
+   * @return number of blocks
+   */
+  public int size() {
+    return cellX.length;
+  }
+
+  /**
+   * Get the column offset of a block from the centre block.
+   *
+   * @param cell block number
+   * @return column offset from -1 to 1
+   */
+  public int getCellX(int cell) {
+    return cellX[cell];
+  }
+
+  /**
+   * Get the row offset of a block from the centre block.
+   *
+   * @param cell block number
+   * @return row offset from -1 to 1
+   */
+  public int getCellY(int cell) {
+    return cellY[cell];
+  }
+
+  /**
+   * Get the leftmost column offset of the blocks.
+   *
+   * @return column offset
+   */
+  public int getMinX() {
+    return minX;
+  }
+
+  /**
+   * Get the rightmost column offset of the blocks.
+   *
+   * @return column offset
+   */
+  public int getMaxX() {
+    return maxX;
+  }
+
+  /**
+   * Get the top row offset of the blocks.
+   *
+   * @return row offset
+   */
+  public int getMinY() {
+    return minY;
+  }
+
+  /**
+   * Get the bottom row offset of the blocks.
+   *
+   * @return row offset
+   */
+  public int getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * Build the block makeup of this shape as a new 3x3 grid holding the value of each block.
+   *
+   * @return 2D grid of the blocks, indexed [x][y]
+   */
+  public int[][] toBlocks() {
+    var blocks = new int[3][3];
+    for (var cell = 0; cell < cellX.length; cell++) {
+      blocks[cellX[cell] + 1][cellY[cell] + 1] = value;
+    }
+    return blocks;
+  }
+}
@@ -0,0 +1,105 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Base of the piece generators, keeping the upcoming pieces in a ring buffer. Subclasses only say how a single new
+ * piece is made.
+
+ * A generator is not thread safe. Use split to get a generator for another thread.
+ */
+public abstract class QueuedPieceGenerator implements PieceGenerator {
+
+  /**
+   * The number of upcoming pieces kept if no preview size is given.
+   */
+  public static final int DEFAULT_PREVIEW = 8;
+
+  /**
+   * Source of the randomness for this generator alone.
+   */
+  protected final SplittableRandom random;
+
+  /**
+   * The upcoming pieces. The next piece is at head and the others follow it round the buffer.
+   */
+  private final GamePiece[] queue;
+
+  /**
+   * Where the next piece is in the queue.
+   */
+  private int head = 0;
+
+  /**
+   * Whether the queue has been filled. It is filled on first use, once the subclass is ready to make pieces.
+   */
+  private boolean filled = false;
+
+  /**
+   * Create a new generator.
+   *
+   * @param random  source of the randomness
+   * @param preview number of upcoming pieces to keep
+   */
+  protected QueuedPieceGenerator(SplittableRandom random, int preview) {
+    if (preview < 1) {
+      throw new IllegalArgumentException("Invalid preview size " + preview);
+    }
+    this.random = random;
+    this.queue = new GamePiece[preview];
+  }
+
+  /**
+   * Make a single new piece.
+   *
+   * @return new piece
+   */
+  protected abstract GamePiece generate();
+
+  /**
+   * Make a piece of the given type with a random rotation. Only the first three rotations are dealt, as in the
+   * original game.
+   *
+   * @param type the type of piece
+   * @return new piece
+   */
+  protected GamePiece withRandomRotation(int type) {
+    return GamePiece.createPiece(type, random.nextInt(3));
+  }
+
+  @Override
+  public GamePiece next() {
+    fill();
+    var piece = queue[head];
+    queue[head] = generate();
+    head = head + 1 == queue.length ? 0 : head + 1;
+    return piece;
+  }
+
+  @Override
+  public GamePiece peek(int ahead) {
+    if (ahead < 0 || ahead >= queue.length) {
+      throw new IndexOutOfBoundsException("Cannot look " + ahead + " pieces ahead");
+    }
+    fill();
+    int index = head + ahead;
+    return queue[index < queue.length ? index : index - queue.length];
+  }
+
+  @Override
+  public int getPreviewSize() {
+    return queue.length;
+  }
+
+  /**
+   * Fill the queue with the first pieces, if that has not been done yet.
+   */
+  private void fill() {
+    if (!filled) {
+      filled = true;
+      for (var i = 0; i < queue.length; i++) {
+        queue[i] = generate();
+      }
+    }
+  }
+}
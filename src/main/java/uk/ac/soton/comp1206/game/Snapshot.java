@@ -0,0 +1,195 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A Snapshot is an immutable record of the state of a game at one moment: the occupied cells and their colours, the
+ * pieces in play and the score, level, lives and multiplier. It is made by GameEngine.snapshot and put back with
+ * GameEngine.restore.
+
+ * Only the occupancy words and the colours of occupied cells are kept, packed two colours to a byte, so a snapshot of a
+ * 5x5 board is a few dozen bytes. Snapshots of a board that has not changed share their cell data with the snapshot
+ * before, so recording a timeout or a bought life copies nothing.
+ */
+public final class Snapshot {
+
+  /**
+   * The fewest bytes write can take, for a snapshot with no cell data.
+   */
+  public static final int MIN_SIZE = 30;
+
+  /**
+   * Occupancy of every cell, laid out as in the BitGrid. Never changed once made.
+   */
+  final long[] occupancy;
+
+  /**
+   * Colours of the occupied cells in cell order, two to a byte with the first in the low half. Never changed once made.
+   */
+  final byte[] colours;
+
+  /**
+   * Zobrist hash of the cells and colours, to tell whether the cell data can be shared.
+   */
+  final long hash;
+
+  final int currentPiece;
+  final int followingPiece;
+  final int score;
+  final int level;
+  final int lives;
+  final int multiplier;
+
+  Snapshot(long[] occupancy, byte[] colours, long hash, int currentPiece, int followingPiece, int score, int level,
+      int lives, int multiplier) {
+    this.occupancy = occupancy;
+    this.colours = colours;
+    this.hash = hash;
+    this.currentPiece = currentPiece;
+    this.followingPiece = followingPiece;
+    this.score = score;
+    this.level = level;
+    this.lives = lives;
+    this.multiplier = multiplier;
+  }
+
+  /**
+   * Write the snapshot to a buffer, as kept in the keyframes of a replay.
+   *
+   * @param buffer buffer to write to
+   */
+  public void write(ByteBuffer buffer) {
+    buffer.putInt(score).putInt(level).putInt(lives).putInt(multiplier);
+    buffer.put((byte) currentPiece).put((byte) followingPiece);
+    buffer.putLong(hash);
+    buffer.putShort((short) occupancy.length);
+    for (long word : occupancy) {
+      buffer.putLong(word);
+    }
+    buffer.putShort((short) colours.length).put(colours);
+  }
+
+  /**
+   * Read a snapshot written by write.
+   *
+   * @param buffer buffer to read from
+   * @return the snapshot
+   * @throws IllegalArgumentException if the cell data does not fit in the buffer
+   * @throws java.nio.BufferUnderflowException if the buffer ends before the snapshot
+   */
+  public static Snapshot read(ByteBuffer buffer) {
+    int score = buffer.getInt();
+    int level = buffer.getInt();
+    int lives = buffer.getInt();
+    int multiplier = buffer.getInt();
+    int currentPiece = buffer.get();
+    int followingPiece = buffer.get();
+    long hash = buffer.getLong();
+    //Lengths are checked against what is left before anything is made, so a corrupt length cannot ask for a huge array
+    int words = buffer.getShort();
+    if (words < 0 || words > buffer.remaining() / Long.BYTES) {
+      throw new IllegalArgumentException("Corrupt snapshot: " + words + " occupancy words");
+    }
+    var occupancy = new long[words];
+    for (var word = 0; word < occupancy.length; word++) {
+      occupancy[word] = buffer.getLong();
+    }
+    int packed = buffer.getShort();
+    if (packed < 0 || packed > buffer.remaining()) {
+      throw new IllegalArgumentException("Corrupt snapshot: " + packed + " bytes of colours");
+    }
+    var colours = new byte[packed];
+    buffer.get(colours);
+    return new Snapshot(occupancy, colours, hash, currentPiece, followingPiece, score, level, lives, multiplier);
+  }
+
+  /**
+   * Check that a snapshot read from a file can be restored to a board: the cell data is the right size for the board,
+   * every occupied cell has a colour, and the pieces are real pieces.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   * @throws IllegalArgumentException if the snapshot does not fit the board
+   */
+  public void check(int cols, int rows) {
+    int cells = cols * rows;
+    if (occupancy.length != (cells + 63) >>> 6) {
+      throw new IllegalArgumentException("Corrupt snapshot: " + occupancy.length + " occupancy words for " + cells
+          + " cells");
+    }
+    var occupied = 0;
+    for (long word : occupancy) {
+      occupied += Long.bitCount(word);
+    }
+    if ((cells & 63) != 0 && occupancy[occupancy.length - 1] >>> (cells & 63) != 0) {
+      throw new IllegalArgumentException("Corrupt snapshot: cells occupied past the end of the board");
+    }
+    if (colours.length != (occupied + 1) / 2) {
+      throw new IllegalArgumentException("Corrupt snapshot: " + colours.length + " bytes of colours for " + occupied
+          + " cells");
+    }
+    for (var i = 0; i < occupied; i++) {
+      if (((colours[i >>> 1] >>> ((i & 1) << 2)) & 0xF) == 0) {
+        throw new IllegalArgumentException("Corrupt snapshot: occupied cell with no colour");
+      }
+    }
+    int pieces = GamePiece.PIECES * GamePiece.ROTATIONS;
+    if (currentPiece < 0 || currentPiece >= pieces || followingPiece < 0 || followingPiece >= pieces) {
+      throw new IllegalArgumentException("Corrupt snapshot: pieces " + currentPiece + " and " + followingPiece);
+    }
+  }
+
+  /**
+   * Check whether another snapshot holds the same state: the same cells and colours, pieces, score, level, lives and
+   * multiplier. The cells are compared themselves, as the hash of a snapshot read from a file is only what the file
+   * says it is.
+   *
+   * @param other the other snapshot
+   * @return true if the state is the same
+   */
+  public boolean matches(Snapshot other) {
+    return hash == other.hash && currentPiece == other.currentPiece && followingPiece == other.followingPiece
+        && score == other.score && level == other.level && lives == other.lives && multiplier == other.multiplier
+        && Arrays.equals(occupancy, other.occupancy) && Arrays.equals(colours, other.colours);
+  }
+
+  /**
+   * Get the most bytes write can take for a board.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return bytes
+   */
+  public static int maxSize(int cols, int rows) {
+    int cells = cols * rows;
+    return MIN_SIZE + ((cells + 63) >>> 6) * Long.BYTES + (cells + 1) / 2;
+  }
+
+  /**
+   * Get the score at the time of the snapshot.
+   *
+   * @return score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get the number of lives at the time of the snapshot.
+   *
+   * @return lives
+   */
+  public int getLives() {
+    return lives;
+  }
+
+  /**
+   * Get the multiplier at the time of the snapshot.
+   *
+   * @return multiplier
+   */
+  public int getMultiplier() {
+    return multiplier;
+  }
+}
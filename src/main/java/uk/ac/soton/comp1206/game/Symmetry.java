@@ -0,0 +1,284 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The symmetries of a board: the four rotations and four reflections of a square. Turning or mirroring a whole position
+ * gives a position that plays exactly the same, as long as every piece turned or mirrored the same way is still a
+ * piece of the game. Caches can then hold one entry for each set of equivalent positions, keyed by canonicalHash.
+
+ * Symmetry t is made by mirroring left to right if t is 4 or more, then turning t mod 4 quarter turns clockwise. A
+ * quarter turn is only a symmetry of a square board. A mirror is only a symmetry if the mirror image of every piece is
+ * a piece as well; isValid tells which symmetries qualify.
+
+ * Shapes that look the same are treated as the same piece, so each piece is mapped to the piece with the lowest id
+ * that has the same shape.
+ */
+public final class Symmetry {
+
+  /**
+   * The number of symmetries.
+   */
+  public static final int COUNT = 8;
+
+  /**
+   * The id of the piece each piece becomes under each symmetry, or -1 if the result is not a piece of the game.
+   */
+  private static final int[][] PIECE_MAP = new int[COUNT][GamePiece.PIECES * GamePiece.ROTATIONS];
+
+  /**
+   * Whether every piece is still a piece under each symmetry.
+   */
+  private static final boolean[] VALID = new boolean[COUNT];
+
+  /**
+   * The keys made by cellKeys, by board size.
+   */
+  private static final Map<Long, long[]> CELL_KEYS = new ConcurrentHashMap<>();
+
+  static {
+    var shapes = GamePiece.PIECES * GamePiece.ROTATIONS;
+    for (var t = 0; t < COUNT; t++) {
+      VALID[t] = true;
+      for (var id = 0; id < shapes; id++) {
+        int mask = transformMask(t, GamePiece.fromId(id).getShape().getMask());
+        PIECE_MAP[t][id] = -1;
+        for (var other = 0; other < shapes; other++) {
+          if (GamePiece.fromId(other).getShape().getMask() == mask) {
+            PIECE_MAP[t][id] = other;
+            break;
+          }
+        }
+        VALID[t] &= PIECE_MAP[t][id] >= 0;
+      }
+    }
+  }
+
+  private Symmetry() {
+  }
+
+  /**
+   * Check whether a symmetry can be used on boards of a given size.
+   *
+   * @param t    the symmetry
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return true if every piece maps to a piece, and the board keeps its shape
+   */
+  public static boolean isValid(int t, int cols, int rows) {
+    return VALID[t] && (cols == rows || (t & 1) == 0);
+  }
+
+  /**
+   * Get the column a cell moves to under a symmetry.
+   *
+   * @param t    the symmetry
+   * @param x    column
+   * @param y    row
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return the new column
+   */
+  public static int transformX(int t, int x, int y, int cols, int rows) {
+    if (t >= 4) {
+      x = cols - 1 - x;
+    }
+    return switch (t & 3) {
+      case 0 -> x;
+      case 1 -> rows - 1 - y;
+      case 2 -> cols - 1 - x;
+      default -> y;
+    };
+  }
+
+  /**
+   * Get the row a cell moves to under a symmetry.
+   *
+   * @param t    the symmetry
+   * @param x    column
+   * @param y    row
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return the new row
+   */
+  public static int transformY(int t, int x, int y, int cols, int rows) {
+    if (t >= 4) {
+      x = cols - 1 - x;
+    }
+    return switch (t & 3) {
+      case 0 -> y;
+      case 1 -> x;
+      case 2 -> rows - 1 - y;
+      default -> cols - 1 - x;
+    };
+  }
+
+  /**
+   * Get the symmetry that undoes another.
+   *
+   * @param t the symmetry
+   * @return the inverse symmetry
+   */
+  public static int inverse(int t) {
+    //Mirrors undo themselves, and turns are undone by turning the rest of the way round
+    return t >= 4 ? t : (4 - t) & 3;
+  }
+
+  /**
+   * Get the piece a piece becomes under a symmetry.
+   *
+   * @param t     the symmetry
+   * @param piece the piece
+   * @return the piece with the transformed shape, or null if there is none
+   */
+  public static GamePiece transform(int t, GamePiece piece) {
+    int id = PIECE_MAP[t][piece.getId()];
+    return id < 0 ? null : GamePiece.fromId(id);
+  }
+
+  /**
+   * Copy a board into another board of the same size, transformed by a symmetry.
+   *
+   * @param t      the symmetry
+   * @param source the board to copy
+   * @param target the board to copy into
+   */
+  public static void transform(int t, BitGrid source, BitGrid target) {
+    int cols = source.getCols();
+    int rows = source.getRows();
+    target.clear();
+    for (var y = 0; y < rows; y++) {
+      for (var x = 0; x < cols; x++) {
+        int value = source.get(x, y);
+        if (value != 0) {
+          target.set(transformX(t, x, y, cols, rows), transformY(t, x, y, cols, rows), value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Transform a move made in one position into the same move in the transformed position.
+   *
+   * @param t              the symmetry
+   * @param move           packed move
+   * @param currentPiece   the current piece of the position the move was made in
+   * @param followingPiece the following piece of the position the move was made in
+   * @param cols           number of columns
+   * @param rows           number of rows
+   * @return the packed move in the transformed position
+   */
+  public static int transformMove(int t, int move, GamePiece currentPiece, GamePiece followingPiece, int cols,
+      int rows) {
+    if (move == Move.NONE) {
+      return Move.NONE;
+    }
+    var piece = Move.isSwap(move) ? followingPiece : currentPiece;
+    var base = transform(t, piece);
+    int mask = transform(t, piece.rotated(Move.rotations(move))).getShape().getMask();
+    var rotations = 0;
+    while (rotations < GamePiece.ROTATIONS - 1 && base.rotated(rotations).getShape().getMask() != mask) {
+      rotations++;
+    }
+    int x = Move.x(move);
+    int y = Move.y(move);
+    return Move.of(transformX(t, x, y, cols, rows), transformY(t, x, y, cols, rows), rotations, Move.isSwap(move));
+  }
+
+  /**
+   * Find the symmetry which gives the canonical form of a position: the one whose transformed position has the lowest
+   * hash of its occupancy and pieces. Equivalent positions all have the same canonical form.
+   *
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return the symmetry
+   */
+  public static int canonicalTransform(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    var best = 0;
+    long bestHash = transformedHash(0, grid, currentPiece, followingPiece);
+    for (var t = 1; t < COUNT; t++) {
+      if (isValid(t, grid.getCols(), grid.getRows())) {
+        long hash = transformedHash(t, grid, currentPiece, followingPiece);
+        if (Long.compareUnsigned(hash, bestHash) < 0) {
+          best = t;
+          bestHash = hash;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Get the hash of the canonical form of a position, which is the same for every equivalent position.
+   *
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return canonical hash, made the same way as Zobrist.position
+   */
+  public static long canonicalHash(BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    return transformedHash(canonicalTransform(grid, currentPiece, followingPiece), grid, currentPiece, followingPiece);
+  }
+
+  /**
+   * Work out the occupancy and pieces hash of a position transformed by a symmetry. The hash of the canonical form is
+   * this hash for the symmetry given by canonicalTransform. Once a grid has been asked, it keeps the transformed
+   * occupancy hashes up to date as cells change, so asking again does not visit the cells.
+   *
+   * @param t              the symmetry, which must be valid for the size of the board
+   * @param grid           the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return hash of the transformed position
+   */
+  public static long transformedHash(int t, BitGrid grid, GamePiece currentPiece, GamePiece followingPiece) {
+    return Zobrist.position(grid.getSymmetryHash(t), transform(t, currentPiece), transform(t, followingPiece));
+  }
+
+  /**
+   * Get the key each cell of a board adds to the occupancy hash of the board under each symmetry: the key of the cell
+   * it moves to. The keys are made once for each size of board and shared by every grid of that size.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return keys, the key of cell i under symmetry t at i * COUNT + t, or 0 if t is not valid for the size
+   */
+  static long[] cellKeys(int cols, int rows) {
+    return CELL_KEYS.computeIfAbsent((long) cols << 32 | rows, size -> {
+      var keys = new long[cols * rows * COUNT];
+      for (var t = 0; t < COUNT; t++) {
+        if (!isValid(t, cols, rows)) {
+          continue;
+        }
+        for (var y = 0; y < rows; y++) {
+          for (var x = 0; x < cols; x++) {
+            keys[(y * cols + x) * COUNT + t] =
+                Zobrist.cell(transformY(t, x, y, cols, rows) * cols + transformX(t, x, y, cols, rows));
+          }
+        }
+      }
+      return keys;
+    });
+  }
+
+  /**
+   * Transform the 3x3 occupancy mask of a piece about its centre.
+   *
+   * @param t    the symmetry
+   * @param mask occupancy of the 3x3 grid, block (x, y) is bit y * 3 + x
+   * @return the transformed mask
+   */
+  private static int transformMask(int t, int mask) {
+    var result = 0;
+    for (var y = 0; y < 3; y++) {
+      for (var x = 0; x < 3; x++) {
+        if ((mask & (1 << (y * 3 + x))) != 0) {
+          result |= 1 << (transformY(t, x, y, 3, 3) * 3 + transformX(t, x, y, 3, 3));
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,38 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals every piece with equal chance, independently of the pieces before it.
+ */
+public class UniformPieceGenerator extends QueuedPieceGenerator {
+
+  /**
+   * Create a new generator from a seed.
+   *
+   * @param seed the seed
+   */
+  public UniformPieceGenerator(long seed) {
+    this(new SplittableRandom(seed), DEFAULT_PREVIEW);
+  }
+
+  /**
+   * Create a new generator.
+   *
+   * @param random  source of the randomness, used by this generator alone
+   * @param preview number of upcoming pieces to keep
+   */
+  public UniformPieceGenerator(SplittableRandom random, int preview) {
+    super(random, preview);
+  }
+
+  @Override
+  protected GamePiece generate() {
+    return withRandomRotation(random.nextInt(GamePiece.PIECES));
+  }
+
+  @Override
+  public PieceGenerator split() {
+    return new UniformPieceGenerator(random.split(), getPreviewSize());
+  }
+}
@@ -0,0 +1,113 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The random keys behind the Zobrist hashes of a board. Each cell has a key for being occupied and a key for each
+ * colour it can hold. The hash of a board is the XOR of the keys of its filled cells, so a change to one cell changes
+ * the hash with a single XOR.
+
+ * Each piece has a key for being current and another for being the following piece, so a position to search can be
+ * identified by a board hash and the two pieces. The keys are the same in every run, so hashes can be stored.
+ */
+public final class Zobrist {
+
+  /**
+   * The most cells a board can have.
+   */
+  public static final int MAX_CELLS = 64 * 64;
+
+  /**
+   * The key of each cell being occupied, by cell index.
+   */
+  private static final long[] CELL_KEYS = new long[MAX_CELLS];
+
+  /**
+   * The number of colours a cell can hold, counting empty, as colours are stored in four bits.
+   */
+  private static final int COLOURS = 16;
+
+  /**
+   * The key of each cell holding each colour, at index * COLOURS + colour. Made from the cell keys once, so setting a
+   * cell does not have to scramble a key.
+   */
+  private static final long[] COLOUR_KEYS = new long[MAX_CELLS * COLOURS];
+
+  /**
+   * The keys of each shape being the current or following piece, by shape id.
+   */
+  private static final long[] CURRENT_KEYS = new long[GamePiece.PIECES * GamePiece.ROTATIONS];
+  private static final long[] FOLLOWING_KEYS = new long[GamePiece.PIECES * GamePiece.ROTATIONS];
+
+  static {
+    long seed = 0x5DEECE66DL;
+    for (var i = 0; i < CELL_KEYS.length; i++) {
+      CELL_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+      for (var value = 0; value < COLOURS; value++) {
+        COLOUR_KEYS[i * COLOURS + value] = mix(CELL_KEYS[i] + value);
+      }
+    }
+    for (var i = 0; i < CURRENT_KEYS.length; i++) {
+      CURRENT_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+      FOLLOWING_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+    }
+  }
+
+  private Zobrist() {
+  }
+
+  /**
+   * Get the key of a cell being occupied.
+   *
+   * @param index cell index, y * cols + x
+   * @return key
+   */
+  public static long cell(int index) {
+    return CELL_KEYS[index];
+  }
+
+  /**
+   * Get the key of a cell holding a colour.
+   *
+   * @param index cell index, y * cols + x
+   * @param value colour, from 1 to 15
+   * @return key
+   */
+  public static long colour(int index, int value) {
+    return COLOUR_KEYS[index * COLOURS + value];
+  }
+
+  /**
+   * Combine the hash of a board with the current and following piece, giving a key for the position a player faces.
+   *
+   * @param boardHash      hash of the board
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @return hash of the position
+   */
+  public static long position(long boardHash, GamePiece currentPiece, GamePiece followingPiece) {
+    return boardHash ^ CURRENT_KEYS[currentPiece.getId()] ^ FOLLOWING_KEYS[followingPiece.getId()];
+  }
+
+  /**
+   * Combine the hash of a board with a single piece to play, giving a key for a position where the piece after it is
+   * not known.
+   *
+   * @param boardHash hash of the board
+   * @param piece     the piece to play
+   * @return hash of the position
+   */
+  public static long position(long boardHash, GamePiece piece) {
+    return boardHash ^ CURRENT_KEYS[piece.getId()];
+  }
+
+  /**
+   * Scramble the bits of a value, using the finaliser of the SplitMix64 generator.
+   *
+   * @param value value to scramble
+   * @return scrambled value
+   */
+  static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+}
@@ -0,0 +1,75 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.nio.ByteBuffer;
+import uk.ac.soton.comp1206.game.Snapshot;
+
+/**
+ * A Keyframe is the state of a replayed game before a given action, so playback can start there instead of from the
+ * beginning.
+ *
+ * @param action     number of actions before the keyframe
+ * @param offset     position in the file of the next action
+ * @param time       milliseconds from the start of the game to the last action before the keyframe
+ * @param dealt      number of pieces dealt by the generator
+ * @param undoDepth  number of moves that could be undone
+ * @param redoDepth  number of moves that could be redone
+ * @param snapshot   the state of the game
+ */
+public record Keyframe(int action, int offset, long time, long dealt, int undoDepth, int redoDepth,
+    Snapshot snapshot) {
+
+  /**
+   * The fewest bytes write can take, with every varint a single byte and no cell data.
+   */
+  public static final int MIN_SIZE = 6 + Snapshot.MIN_SIZE;
+
+  /**
+   * Write the keyframe to a buffer, as kept in the index of a replay.
+   *
+   * @param buffer buffer to write to
+   */
+  public void write(ByteBuffer buffer) {
+    Replay.putVarint(buffer, action);
+    Replay.putVarint(buffer, offset);
+    Replay.putVarint(buffer, time);
+    Replay.putVarint(buffer, dealt);
+    Replay.putVarint(buffer, undoDepth);
+    Replay.putVarint(buffer, redoDepth);
+    snapshot.write(buffer);
+  }
+
+  /**
+   * Read a keyframe written by write.
+   *
+   * @param buffer buffer to read from
+   * @return the keyframe
+   */
+  public static Keyframe read(ByteBuffer buffer) {
+    return new Keyframe((int) Replay.getVarint(buffer), (int) Replay.getVarint(buffer), Replay.getVarint(buffer),
+        Replay.getVarint(buffer), (int) Replay.getVarint(buffer), (int) Replay.getVarint(buffer),
+        Snapshot.read(buffer));
+  }
+
+  /**
+   * Check whether another keyframe holds the same point in the game: the same position in the actions, pieces dealt,
+   * moves to undo and redo, and state.
+   *
+   * @param other the other keyframe
+   * @return true if they are the same
+   */
+  public boolean matches(Keyframe other) {
+    return action == other.action && offset == other.offset && time == other.time && dealt == other.dealt
+        && undoDepth == other.undoDepth && redoDepth == other.redoDepth && snapshot.matches(other.snapshot);
+  }
+
+  /**
+   * Get the most bytes write can take for a board.
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   * @return bytes
+   */
+  public static int maxSize(int cols, int rows) {
+    return Replay.MAX_VARINT_SIZE * 6 + Snapshot.maxSize(cols, rows);
+  }
+}
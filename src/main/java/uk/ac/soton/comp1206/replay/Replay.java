@@ -0,0 +1,169 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of a replay file, which records everything the player did in a game so it can be played again exactly.
+
+ * A replay starts with a fixed header: the magic number, the version, the number of columns and rows, the kind of
+ * piece generator, the seed it was created with and the wall clock time the game started, in milliseconds. Given the
+ * seed, the pieces are dealt again in the same order, so only the actions of the player need to be kept.
+
+ * Each action follows as one varint holding the milliseconds since the last action shifted left by four, with the
+ * type of action in the low four bits, then a varint for each argument the action has. Varints are seven bits to a
+ * byte, lowest first, with the top bit set on every byte but the last. Most actions take two or three bytes, so a ten
+ * minute game is a few KB.
+
+ * A finished recording ends with an index of keyframes, one every KEYFRAME_INTERVAL actions or at the first action
+ * after that when the game is not paused, holding the state of the game at that point, so playback can seek without
+ * playing every action before. The index is followed by a trailer of the number of keyframes, the position of the index
+ * and INDEX_MAGIC. A recording that was cut off has no index.
+ */
+public final class Replay {
+
+  /**
+   * The magic number at the start of every replay, "TRP1".
+   */
+  public static final int MAGIC = 0x54525031;
+
+  /**
+   * The version of the layout.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The size of the header in bytes.
+   */
+  public static final int HEADER_SIZE = 24;
+
+  /**
+   * The magic number at the end of a replay with an index, "TRPI".
+   */
+  public static final int INDEX_MAGIC = 0x54525049;
+
+  /**
+   * The size of the trailer after the index in bytes.
+   */
+  public static final int TRAILER_SIZE = 12;
+
+  /**
+   * The number of actions between keyframes.
+   */
+  public static final int KEYFRAME_INTERVAL = 64;
+
+  /**
+   * The kinds of piece generator.
+   */
+  public static final int UNIFORM = 0;
+  public static final int BAG = 1;
+
+  /**
+   * The current piece was played at a column and row. Arguments: x, y.
+   */
+  public static final int PLACE = 1;
+
+  /**
+   * The current piece was rotated. Argument: quarter turns clockwise.
+   */
+  public static final int ROTATE = 2;
+
+  /**
+   * The current and following pieces were swapped.
+   */
+  public static final int SWAP = 3;
+
+  /**
+   * Score was spent on a life.
+   */
+  public static final int ADD_LIFE = 4;
+
+  /**
+   * The time for the current piece ran out.
+   */
+  public static final int TIMEOUT = 5;
+
+  /**
+   * The last move was undone.
+   */
+  public static final int UNDO = 6;
+
+  /**
+   * The last move undone was redone.
+   */
+  public static final int REDO = 7;
+
+  /**
+   * The game ended or was left. Argument: the final score.
+   */
+  public static final int END = 8;
+
+  /**
+   * The game was paused, stopping the countdown.
+   */
+  public static final int PAUSE = 9;
+
+  /**
+   * The game was resumed, carrying on the countdown where it stopped.
+   */
+  public static final int RESUME = 10;
+
+  /**
+   * Bits of the first varint of an action holding its type.
+   */
+  public static final int TYPE_BITS = 4;
+
+  /**
+   * The most bytes a varint can take.
+   */
+  public static final int MAX_VARINT_SIZE = 10;
+
+  private Replay() {
+  }
+
+  /**
+   * Get the number of arguments an action has.
+   *
+   * @param type type of action
+   * @return number of arguments
+   */
+  public static int arguments(int type) {
+    return switch (type) {
+      case PLACE -> 2;
+      case ROTATE, END -> 1;
+      case SWAP, ADD_LIFE, TIMEOUT, UNDO, REDO, PAUSE, RESUME -> 0;
+      default -> throw new IllegalArgumentException("Unknown action: " + type);
+    };
+  }
+
+  /**
+   * Write a varint. Negative values are not allowed.
+   *
+   * @param buffer buffer to write to
+   * @param value  the value
+   */
+  public static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Read a varint.
+   *
+   * @param buffer buffer to read from
+   * @return the value
+   */
+  public static long getVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (var shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+}
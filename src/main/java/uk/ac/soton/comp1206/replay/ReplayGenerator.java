@@ -0,0 +1,104 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.util.Arrays;
+
+import uk.ac.soton.comp1206.game.BagPieceGenerator;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.PieceGenerator;
+import uk.ac.soton.comp1206.game.QueuedPieceGenerator;
+import uk.ac.soton.comp1206.game.UniformPieceGenerator;
+
+/**
+ * Deals the pieces of a recorded game again, and can be wound to any point in the game. A generator made from the
+ * recorded seed only ever moves forward, and every piece it makes is kept, so winding back to a keyframe is just moving
+ * to a point in the pieces already made. Each piece is made once however often playback seeks over it.
+ */
+class ReplayGenerator implements PieceGenerator {
+
+  private final QueuedPieceGenerator generator;
+
+  /**
+   * Every piece the generator has dealt so far, in order, and how many there are.
+   */
+  private GamePiece[] pieces = new GamePiece[256];
+  private int made = 0;
+
+  /**
+   * Number of pieces dealt.
+   */
+  private int dealt;
+
+  /**
+   * Create a new generator at the start of a recorded game.
+   *
+   * @param kind kind of generator, Replay.UNIFORM or Replay.BAG
+   * @param seed seed the generator was created with
+   */
+  ReplayGenerator(int kind, long seed) {
+    if (kind != Replay.UNIFORM && kind != Replay.BAG) {
+      throw new IllegalArgumentException("Unknown generator: " + kind);
+    }
+    generator = kind == Replay.BAG ? new BagPieceGenerator(seed) : new UniformPieceGenerator(seed);
+  }
+
+  /**
+   * Wind the generator to the point where a number of pieces have been dealt. Going back is immediate; going past the
+   * furthest point reached so far makes the pieces in between.
+   *
+   * @param dealt number of pieces dealt
+   */
+  void reset(long dealt) {
+    if (dealt < 0 || dealt > Integer.MAX_VALUE - generator.getPreviewSize()) {
+      throw new IllegalArgumentException("Cannot deal " + dealt + " pieces");
+    }
+    this.dealt = (int) dealt;
+  }
+
+  /**
+   * Get a piece by the order it is dealt in, making it and the pieces before it if they have not been made yet.
+   *
+   * @param index number of pieces dealt before it
+   * @return the piece
+   */
+  private GamePiece piece(int index) {
+    while (made <= index) {
+      if (made == pieces.length) {
+        pieces = Arrays.copyOf(pieces, pieces.length * 2);
+      }
+      pieces[made++] = generator.next();
+    }
+    return pieces[index];
+  }
+
+  /**
+   * Get the number of pieces dealt.
+   *
+   * @return pieces dealt
+   */
+  long getDealt() {
+    return dealt;
+  }
+
+  @Override
+  public GamePiece next() {
+    return piece(dealt++);
+  }
+
+  @Override
+  public GamePiece peek(int ahead) {
+    if (ahead < 0 || ahead >= generator.getPreviewSize()) {
+      throw new IndexOutOfBoundsException("Cannot look " + ahead + " pieces ahead");
+    }
+    return piece(dealt + ahead);
+  }
+
+  @Override
+  public int getPreviewSize() {
+    return generator.getPreviewSize();
+  }
+
+  @Override
+  public PieceGenerator split() {
+    return generator.split();
+  }
+}
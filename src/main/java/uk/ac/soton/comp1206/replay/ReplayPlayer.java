@@ -0,0 +1,426 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.History;
+import uk.ac.soton.comp1206.game.Snapshot;
+
+/**
+ * Plays a recorded game again on a headless GameEngine, applying each action the way Game applied it when it was
+ * recorded. Nothing waits for the recorded times, so a game plays back as fast as the engine runs.
+
+ * Seeking finds the last keyframe before the target by binary search, restores it and plays the few actions from there.
+ * The engine and its grid stay the same objects throughout, so a view bound to the grid follows every seek. If an undo
+ * or redo after the keyframe needs a move from before it, playback starts again from an earlier keyframe. The pieces
+ * dealt are kept as they are made, so a seek costs the search and at most KEYFRAME_INTERVAL actions, however far into
+ * the game it goes.
+ */
+public class ReplayPlayer {
+
+  private final ReplayReader reader;
+  private final ReplayGenerator generator;
+  private final GameEngine engine;
+  private final History history = new History();
+
+  /**
+   * The state at the start of the game, before any action.
+   */
+  private final Keyframe start;
+
+  /**
+   * The actions, positioned at the next action to apply.
+   */
+  private ByteBuffer actions;
+
+  /**
+   * Number of actions applied.
+   */
+  private int action = 0;
+
+  /**
+   * Milliseconds from the start of the game to the last action applied.
+   */
+  private long time = 0;
+
+  /**
+   * Moves that could be undone and redone at the keyframe played from, which the history does not hold.
+   */
+  private int baseUndo = 0;
+  private int baseRedo = 0;
+
+  /**
+   * Whether the end of the game has been reached.
+   */
+  private boolean finished = false;
+
+  /**
+   * Whether the game is paused, when Game ignores everything but resuming and ending the game.
+   */
+  private boolean paused = false;
+
+  /**
+   * The type of the last action applied while seeking.
+   */
+  private int lastType = -1;
+
+  /**
+   * Whether the last action applied started the countdown for a piece again, as Game does.
+   */
+  private boolean countdownRestarted = false;
+
+  /**
+   * The final score recorded at the end of the game, or -1 if the end has not been reached.
+   */
+  private int claimedScore = -1;
+
+  /**
+   * Create a new player at the start of a recorded game.
+   *
+   * @param reader the replay
+   */
+  public ReplayPlayer(ReplayReader reader) {
+    this.reader = reader;
+    this.generator = new ReplayGenerator(reader.getGenerator(), reader.getSeed());
+    this.engine = new GameEngine(reader.getCols(), reader.getRows(), generator);
+    engine.start();
+    this.actions = reader.getActions();
+    this.start = keyframe();
+  }
+
+  /**
+   * Check a whole replay by playing it once from the start: every action can be played, and every keyframe holds the
+   * state the actions reach, so seeking shows the same game as playing through. A keyframe index could otherwise be
+   * edited to show a board the actions never reach.
+   *
+   * @param reader the replay
+   * @throws IllegalArgumentException if an action is corrupt or a keyframe does not match the actions
+   */
+  public static void checkKeyframes(ReplayReader reader) {
+    var player = new ReplayPlayer(reader);
+    try {
+      for (var expected : reader.getKeyframes()) {
+        player.advance(expected.action());
+        if (player.finished || !player.keyframe().matches(expected)) {
+          throw new IllegalArgumentException("Corrupt replay: keyframe at action " + expected.action()
+              + " does not match the actions");
+        }
+      }
+      player.playToEnd();
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Corrupt replay: action " + player.action + " cut short");
+    }
+  }
+
+  /**
+   * Apply the next action.
+   *
+   * @return the type of action applied, or -1 if the end of the game has been reached
+   */
+  public int step() {
+    if (finished) {
+      return -1;
+    }
+    int target = action + 1;
+    int type = apply();
+    if (type == 0) {
+      seek(target);
+      type = lastType;
+    }
+    return type;
+  }
+
+  /**
+   * Apply every action up to the end of the game.
+   *
+   * @return the final score
+   */
+  public int playToEnd() {
+    while (step() >= 0) {
+      //Apply the next action
+    }
+    return engine.getScore();
+  }
+
+  /**
+   * Play forward to the point where the actions up to a given time have been applied.
+   *
+   * @param millis milliseconds from the start of the game
+   */
+  public void playUntil(long millis) {
+    long next;
+    while ((next = nextTime()) >= 0 && next <= millis) {
+      step();
+    }
+  }
+
+  /**
+   * Go to the point where a given number of actions have been applied, forwards or backwards.
+   *
+   * @param target number of actions applied, or past the end to go to the end
+   */
+  public void seek(int target) {
+    if (target >= action && target - action < Replay.KEYFRAME_INTERVAL && !finished) {
+      //Close enough ahead to play on from here
+      if (advance(target)) {
+        return;
+      }
+    }
+    int index = keyframeBefore(target);
+    while (true) {
+      restore(index < 0 ? start : reader.getKeyframes().get(index));
+      if (advance(target)) {
+        return;
+      }
+      //An undo or redo reached back past the keyframe, so start from the one before
+      index--;
+    }
+  }
+
+  /**
+   * Find the last keyframe at or before an action by binary search.
+   *
+   * @param target number of actions applied
+   * @return index of the keyframe, or -1 to start from the beginning
+   */
+  private int keyframeBefore(int target) {
+    List<Keyframe> keyframes = reader.getKeyframes();
+    int low = 0;
+    int high = keyframes.size() - 1;
+    var found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (keyframes.get(middle).action() <= target) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Apply actions until a number have been applied or the game ends.
+   *
+   * @param target number of actions applied
+   * @return false if an undo or redo needed a move from before the keyframe played from
+   */
+  private boolean advance(int target) {
+    while (action < target && !finished) {
+      int type = apply();
+      if (type == 0) {
+        return false;
+      }
+      lastType = type;
+    }
+    return true;
+  }
+
+  /**
+   * Put the player back to a keyframe. Keyframes are never taken while the game is paused.
+   *
+   * @param keyframe the keyframe
+   */
+  private void restore(Keyframe keyframe) {
+    generator.reset(keyframe.dealt());
+    engine.restore(keyframe.snapshot());
+    history.clear();
+    baseUndo = keyframe.undoDepth();
+    baseRedo = keyframe.redoDepth();
+    action = keyframe.action();
+    time = keyframe.time();
+    actions = reader.getActions().position(keyframe.offset());
+    finished = false;
+    paused = false;
+    claimedScore = -1;
+  }
+
+  /**
+   * Apply the next action the way Game applied it.
+   *
+   * @return the type of action, or 0 if it was an undo or redo needing a move from before the keyframe played from
+   */
+  private int apply() {
+    if (!actions.hasRemaining()) {
+      finished = true;
+      return -1;
+    }
+    int position = actions.position();
+    long header = Replay.getVarint(actions);
+    int type = (int) (header & ((1 << Replay.TYPE_BITS) - 1));
+    int first = Replay.arguments(type) > 0 ? (int) Replay.getVarint(actions) : 0;
+    int second = Replay.arguments(type) > 1 ? (int) Replay.getVarint(actions) : 0;
+
+    countdownRestarted = false;
+    if (paused && type != Replay.RESUME && type != Replay.END) {
+      //Game drops every other action while paused, so playback does too
+      time += header >>> Replay.TYPE_BITS;
+      action++;
+      return type;
+    }
+    switch (type) {
+      case Replay.PLACE -> {
+        var before = engine.snapshot(history.latest());
+        if (engine.place(first, second)) {
+          record(before);
+          countdownRestarted = true;
+        }
+      }
+      case Replay.ROTATE -> engine.rotate(first);
+      case Replay.SWAP -> engine.swap();
+      case Replay.ADD_LIFE -> {
+        var before = engine.snapshot(history.latest());
+        if (engine.addLife()) {
+          record(before);
+        }
+      }
+      case Replay.TIMEOUT -> {
+        var before = engine.snapshot(history.latest());
+        if (engine.timeout()) {
+          record(before);
+        }
+        countdownRestarted = true;
+      }
+      case Replay.UNDO -> {
+        if (history.getUndoCount() == 0 && baseUndo > 0) {
+          actions.position(position);
+          return 0;
+        }
+        var snapshot = history.undo(engine.snapshot(history.latest()));
+        if (snapshot != null) {
+          engine.restore(snapshot);
+          countdownRestarted = true;
+        }
+      }
+      case Replay.REDO -> {
+        if (history.getRedoCount() == 0 && baseRedo > 0) {
+          actions.position(position);
+          return 0;
+        }
+        var snapshot = history.redo(engine.snapshot(history.latest()));
+        if (snapshot != null) {
+          engine.restore(snapshot);
+          countdownRestarted = true;
+        }
+      }
+      //Only the countdown stops, which playback follows from the times of the actions
+      case Replay.PAUSE -> paused = !engine.isGameOver();
+      case Replay.RESUME -> paused = false;
+      case Replay.END -> {
+        finished = true;
+        claimedScore = first;
+      }
+      default -> throw new IllegalArgumentException("Unknown action: " + type);
+    }
+    time += header >>> Replay.TYPE_BITS;
+    action++;
+    return type;
+  }
+
+  /**
+   * Record the state before a move, which also forgets anything that could be redone.
+   *
+   * @param before the state before the move
+   */
+  private void record(Snapshot before) {
+    history.record(before);
+    baseRedo = 0;
+  }
+
+  /**
+   * Take a keyframe of the current state.
+   *
+   * @return the keyframe
+   */
+  public Keyframe keyframe() {
+    return new Keyframe(action, actions.position(), time, generator.getDealt(), baseUndo + history.getUndoCount(),
+        baseRedo + history.getRedoCount(), engine.snapshot(null));
+  }
+
+  /**
+   * Get the time of the next action without applying it.
+   *
+   * @return milliseconds from the start of the game, or -1 if there are no more actions
+   */
+  public long nextTime() {
+    if (finished || !actions.hasRemaining()) {
+      return -1;
+    }
+    return time + (Replay.getVarint(actions.duplicate()) >>> Replay.TYPE_BITS);
+  }
+
+  /**
+   * Get the engine the game is played on.
+   *
+   * @return the engine
+   */
+  public GameEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Get the replay being played.
+   *
+   * @return the reader
+   */
+  public ReplayReader getReader() {
+    return reader;
+  }
+
+  /**
+   * Get the number of actions applied.
+   *
+   * @return actions applied
+   */
+  public int getAction() {
+    return action;
+  }
+
+  /**
+   * Get the time of the last action applied.
+   *
+   * @return milliseconds from the start of the game
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Check whether the last action applied started the countdown for a piece again: a piece played, the time running
+   * out, or a move undone or redone.
+   *
+   * @return true if the countdown was restarted
+   */
+  public boolean isCountdownRestarted() {
+    return countdownRestarted;
+  }
+
+  /**
+   * Check whether the game is paused, so every action but resuming and ending the game is ignored.
+   *
+   * @return true if paused
+   */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Get the final score recorded at the end of the game.
+   *
+   * @return claimed score, or -1 if the end has not been reached
+   */
+  public int getClaimedScore() {
+    return claimedScore;
+  }
+
+  /**
+   * Check whether the end of the game has been reached.
+   *
+   * @return true if there are no more actions
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+}
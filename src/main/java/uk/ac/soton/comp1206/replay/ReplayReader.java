@@ -0,0 +1,199 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * Reads a replay file, laid out as described in Replay: the header, the actions, and the keyframe index if the
+ * recording was finished. A replay that was cut off has no index and can only be played from the start.
+ */
+public class ReplayReader {
+
+  private final ByteBuffer data;
+  private final int cols;
+  private final int rows;
+  private final int generator;
+  private final long seed;
+  private final long startTime;
+
+  /**
+   * Position in the data just past the last action.
+   */
+  private final int actionsEnd;
+
+  /**
+   * The keyframes in the index, in order of action.
+   */
+  private final List<Keyframe> keyframes;
+
+  /**
+   * Read a replay held in a buffer. Everything read from the file is checked before it is used, so a corrupt or
+   * crafted replay is rejected rather than asking for more memory than the file could describe.
+   *
+   * @param data the whole replay file
+   * @throws IllegalArgumentException if the data is not a replay, or is corrupt
+   */
+  public ReplayReader(ByteBuffer data) {
+    this.data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (this.data.limit() < Replay.HEADER_SIZE || this.data.getInt(0) != Replay.MAGIC) {
+      throw new IllegalArgumentException("Not a replay");
+    }
+    if (this.data.get(4) != Replay.VERSION) {
+      throw new IllegalArgumentException("Unknown replay version: " + this.data.get(4));
+    }
+    cols = this.data.get(5);
+    rows = this.data.get(6);
+    generator = this.data.get(7);
+    seed = this.data.getLong(8);
+    startTime = this.data.getLong(16);
+    if (cols <= 0 || rows <= 0 || cols * rows > Zobrist.MAX_CELLS) {
+      throw new IllegalArgumentException("Corrupt replay: board of " + cols + " x " + rows);
+    }
+    if (generator != Replay.UNIFORM && generator != Replay.BAG) {
+      throw new IllegalArgumentException("Corrupt replay: unknown generator " + generator);
+    }
+
+    int limit = this.data.limit();
+    if (limit >= Replay.HEADER_SIZE + Replay.TRAILER_SIZE
+        && this.data.getInt(limit - Integer.BYTES) == Replay.INDEX_MAGIC) {
+      int count = this.data.getInt(limit - 3 * Integer.BYTES);
+      actionsEnd = this.data.getInt(limit - 2 * Integer.BYTES);
+      int indexEnd = limit - Replay.TRAILER_SIZE;
+      if (actionsEnd < Replay.HEADER_SIZE || actionsEnd > indexEnd) {
+        throw new IllegalArgumentException("Corrupt replay: index at " + actionsEnd + " of " + limit + " bytes");
+      }
+      if (count < 0 || count > (indexEnd - actionsEnd) / Keyframe.MIN_SIZE) {
+        throw new IllegalArgumentException("Corrupt replay: " + count + " keyframes in "
+            + (indexEnd - actionsEnd) + " bytes");
+      }
+      var index = this.data.duplicate().order(ByteOrder.BIG_ENDIAN).limit(indexEnd).position(actionsEnd);
+      var list = new ArrayList<Keyframe>(count);
+      try {
+        for (var i = 0; i < count; i++) {
+          list.add(Keyframe.read(index));
+        }
+      } catch (BufferUnderflowException e) {
+        throw new IllegalArgumentException("Corrupt replay: keyframe index cut short");
+      }
+      var previous = 0;
+      for (var keyframe : list) {
+        checkKeyframe(keyframe, previous);
+        previous = keyframe.action();
+      }
+      keyframes = Collections.unmodifiableList(list);
+    } else {
+      actionsEnd = limit;
+      keyframes = List.of();
+    }
+  }
+
+  /**
+   * Check that a keyframe can be played from: it comes after the one before, points into the actions, has dealt no
+   * more pieces than its actions could, and its snapshot fits the board. Whether it holds the state the actions
+   * actually reach is checked by ReplayPlayer.checkKeyframes.
+   *
+   * @param keyframe the keyframe
+   * @param previous action of the keyframe before, or 0 for the first
+   * @throws IllegalArgumentException if the keyframe is corrupt
+   */
+  private void checkKeyframe(Keyframe keyframe, int previous) {
+    int action = keyframe.action();
+    //The game deals two pieces to start, then at most one for each action
+    if (action <= previous || keyframe.offset() < Replay.HEADER_SIZE || keyframe.offset() > actionsEnd
+        || keyframe.time() < 0 || keyframe.dealt() < 0 || keyframe.dealt() > action + 2L
+        || keyframe.undoDepth() < 0 || keyframe.undoDepth() > action
+        || keyframe.redoDepth() < 0 || keyframe.redoDepth() > action) {
+      throw new IllegalArgumentException("Corrupt replay: keyframe at action " + action);
+    }
+    keyframe.snapshot().check(cols, rows);
+  }
+
+  /**
+   * Read a replay file.
+   *
+   * @param path the file
+   * @return the reader
+   * @throws IOException if the file cannot be read
+   */
+  public static ReplayReader open(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var data = ByteBuffer.allocate((int) channel.size());
+      while (data.hasRemaining() && channel.read(data) >= 0) {
+        //Keep reading until the whole file is in
+      }
+      return new ReplayReader(data.flip());
+    }
+  }
+
+  /**
+   * Get the actions, from the first to the last.
+   *
+   * @return a new buffer over the actions, positioned at the first
+   */
+  public ByteBuffer getActions() {
+    return data.duplicate().order(ByteOrder.BIG_ENDIAN).limit(actionsEnd).position(Replay.HEADER_SIZE);
+  }
+
+  /**
+   * Get the keyframes in the index, in order of action.
+   *
+   * @return keyframes, empty if the replay has no index
+   */
+  public List<Keyframe> getKeyframes() {
+    return keyframes;
+  }
+
+  /**
+   * Get the number of columns of the board.
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows of the board.
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Get the kind of piece generator.
+   *
+   * @return Replay.UNIFORM or Replay.BAG
+   */
+  public int getGenerator() {
+    return generator;
+  }
+
+  /**
+   * Get the seed of the piece generator.
+   *
+   * @return seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Get the wall clock time the game started.
+   *
+   * @return milliseconds since the epoch
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+}
@@ -0,0 +1,318 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records the actions of a game to a replay file, laid out as described in Replay.
+
+ * Recording an action only notes the time and hands the action to a writer thread, so the game thread never waits for
+ * the disk. The writer encodes actions into a buffer and writes it to the file channel when it fills up, and when the
+ * recording ends. If the file cannot be written, recording stops and the game carries on.
+
+ * When the recording ends, the writer plays the actions back with a ReplayPlayer and appends the keyframe index, so
+ * the keyframes hold exactly the states playback will reach.
+ */
+public class ReplayRecorder {
+
+  private static final Logger logger = LogManager.getLogger(ReplayRecorder.class);
+
+  /**
+   * Size of the buffer the writer fills before writing to the file.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * The writer encoding the actions and writing them out.
+   */
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "Replay Writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path path;
+  private final FileChannel channel;
+
+  /**
+   * Actions encoded but not yet written. Only used by the writer.
+   */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+
+  /**
+   * The time the recording started, from System.nanoTime.
+   */
+  private final long start;
+
+  /**
+   * Milliseconds since the start of the last action written. Only used by the writer.
+   */
+  private long lastTime = 0;
+
+  /**
+   * Whether the file could not be written, so nothing more is recorded. Only used by the writer.
+   */
+  private boolean failed = false;
+
+  /**
+   * Whether the recording has ended.
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * Start recording a game to a file, replacing any file already there.
+   *
+   * @param path      file to write
+   * @param cols      number of columns of the board
+   * @param rows      number of rows of the board
+   * @param generator kind of piece generator, Replay.UNIFORM or Replay.BAG
+   * @param seed      seed the piece generator was created with
+   * @throws IOException if the file cannot be created
+   */
+  public ReplayRecorder(Path path, int cols, int rows, int generator, long seed) throws IOException {
+    this.path = path;
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.start = System.nanoTime();
+    buffer.putInt(Replay.MAGIC).put((byte) Replay.VERSION).put((byte) cols).put((byte) rows).put((byte) generator)
+        .putLong(seed).putLong(System.currentTimeMillis());
+    logger.info("Recording replay to {}", path);
+  }
+
+  /**
+   * Record the current piece being played at a position.
+   *
+   * @param x column
+   * @param y row
+   */
+  public void place(int x, int y) {
+    record(Replay.PLACE, x, y);
+  }
+
+  /**
+   * Record the current piece being rotated.
+   *
+   * @param rotations quarter turns clockwise
+   */
+  public void rotate(int rotations) {
+    record(Replay.ROTATE, Math.floorMod(rotations, 4), 0);
+  }
+
+  /**
+   * Record the current and following pieces being swapped.
+   */
+  public void swap() {
+    record(Replay.SWAP, 0, 0);
+  }
+
+  /**
+   * Record score being spent on a life.
+   */
+  public void addLife() {
+    record(Replay.ADD_LIFE, 0, 0);
+  }
+
+  /**
+   * Record the time for the current piece running out.
+   */
+  public void timeout() {
+    record(Replay.TIMEOUT, 0, 0);
+  }
+
+  /**
+   * Record the last move being undone.
+   */
+  public void undo() {
+    record(Replay.UNDO, 0, 0);
+  }
+
+  /**
+   * Record the last move undone being redone.
+   */
+  public void redo() {
+    record(Replay.REDO, 0, 0);
+  }
+
+  /**
+   * Record the game being paused.
+   */
+  public void pause() {
+    record(Replay.PAUSE, 0, 0);
+  }
+
+  /**
+   * Record the game being resumed.
+   */
+  public void resume() {
+    record(Replay.RESUME, 0, 0);
+  }
+
+  /**
+   * End the recording with the final score, and write out everything recorded. Later actions are ignored.
+   *
+   * @param score the final score
+   */
+  public void close(int score) {
+    if (closed) {
+      return;
+    }
+    record(Replay.END, score, 0);
+    closed = true;
+    writer.execute(this::finish);
+    writer.shutdown();
+  }
+
+  /**
+   * Wait for the writer to finish writing out the recording, once it has ended.
+   *
+   * @param millis the longest to wait, in milliseconds
+   * @return true if the file is complete, false if the wait timed out
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitWritten(long millis) throws InterruptedException {
+    return writer.awaitTermination(millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Note the time of an action and hand it to the writer.
+   *
+   * @param type   type of action
+   * @param first  first argument, if any
+   * @param second second argument, if any
+   */
+  private void record(int type, int first, int second) {
+    if (closed) {
+      return;
+    }
+    long time = System.nanoTime();
+    try {
+      writer.execute(() -> write(type, time, first, second));
+    } catch (RejectedExecutionException e) {
+      //Recording has already ended
+    }
+  }
+
+  /**
+   * Encode an action into the buffer, writing the buffer out first if there might not be room.
+   *
+   * @param type   type of action
+   * @param time   time of the action, from System.nanoTime
+   * @param first  first argument, if any
+   * @param second second argument, if any
+   */
+  private void write(int type, long time, int first, int second) {
+    if (failed) {
+      return;
+    }
+    if (buffer.remaining() < Replay.MAX_VARINT_SIZE * 3) {
+      flush();
+    }
+    //Actions can be recorded from more than one thread, so never let time go backwards
+    long millis = Math.max((time - start) / 1_000_000, lastTime);
+    Replay.putVarint(buffer, (millis - lastTime) << Replay.TYPE_BITS | type);
+    lastTime = millis;
+    int arguments = Replay.arguments(type);
+    if (arguments > 0) {
+      Replay.putVarint(buffer, first);
+    }
+    if (arguments > 1) {
+      Replay.putVarint(buffer, second);
+    }
+  }
+
+  /**
+   * Write the buffer to the file.
+   */
+  private void flush() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      logger.error("Cannot write replay {}, recording stopped", path, e);
+      failed = true;
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Write out the rest of the buffer and the index, and close the file.
+   */
+  private void finish() {
+    if (!failed) {
+      flush();
+    }
+    if (!failed) {
+      writeIndex();
+    }
+    try {
+      channel.close();
+      logger.info("Replay saved to {}", path);
+    } catch (IOException e) {
+      logger.error("Cannot close replay {}", path, e);
+    }
+  }
+
+  /**
+   * Play the recorded actions back and append the keyframe index.
+   */
+  private void writeIndex() {
+    try {
+      var size = (int) channel.size();
+      var data = ByteBuffer.allocate(size);
+      while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+        //Keep reading until the whole file is in
+      }
+      var reader = new ReplayReader(data.flip());
+      var player = new ReplayPlayer(reader);
+      var keyframes = new ArrayList<Keyframe>();
+      var last = 0;
+      while (player.step() >= 0) {
+        //A keyframe does not hold whether the game is paused, so one due while paused waits for the game to resume
+        if (player.getAction() - last >= Replay.KEYFRAME_INTERVAL && !player.isFinished() && !player.isPaused()) {
+          keyframes.add(player.keyframe());
+          last = player.getAction();
+        }
+      }
+
+      var index = ByteBuffer.allocate(keyframes.size() * Keyframe.maxSize(reader.getCols(), reader.getRows())
+          + Replay.TRAILER_SIZE).order(ByteOrder.BIG_ENDIAN);
+      for (var keyframe : keyframes) {
+        keyframe.write(index);
+      }
+      index.putInt(keyframes.size()).putInt(size).putInt(Replay.INDEX_MAGIC).flip();
+      long position = size;
+      while (index.hasRemaining()) {
+        position += channel.write(index, position);
+      }
+    } catch (IOException | RuntimeException e) {
+      //The actions are all there, so the replay can still be played from the start
+      logger.error("Cannot index replay {}", path, e);
+    }
+  }
+
+  /**
+   * Get the file being recorded to.
+   *
+   * @return the path
+   */
+  public Path getPath() {
+    return path;
+  }
+}
@@ -0,0 +1,323 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.BagPieceGenerator;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.History;
+import uk.ac.soton.comp1206.game.Snapshot;
+import uk.ac.soton.comp1206.game.UniformPieceGenerator;
+import uk.ac.soton.comp1206.utility.CommandLine;
+
+/**
+ * Checks the replay format end to end: seeded games of random actions are recorded to files, read back and played
+ * again, and must come out exactly as they were played. Each game is played on a GameEngine the way Game plays it,
+ * recording every action as Game does, so the check covers the recorder, the varint encoding, the keyframe index, the
+ * reader and the player together.
+
+ * For each game, playing the replay to the end must reach the same score and board as the game, the claimed score
+ * must match, every keyframe must hold the state playing through reaches, and seeking to any action, forwards or
+ * backwards, must give the same state as playing up to it from the start. A copy with a cell of a keyframe moved
+ * must be rejected.
+ */
+public class ReplayRoundTrip {
+
+  private static final Logger logger = LogManager.getLogger(ReplayRoundTrip.class);
+
+  private static final String USAGE = "ReplayRoundTrip [--games N] [--seed S] [--size COLSxROWS]"
+      + " [--generator uniform|bag] [--max-actions M]";
+
+  /**
+   * The number of points in each game that seeking is checked at.
+   */
+  private static final int SEEKS = 32;
+
+  private final int cols;
+  private final int rows;
+  private final int generator;
+
+  /**
+   * The most actions a single game may take before it is ended.
+   */
+  private final int maxActions;
+
+  /**
+   * Create a new check.
+   *
+   * @param cols       number of columns of the board
+   * @param rows       number of rows of the board
+   * @param generator  kind of piece generator, Replay.UNIFORM or Replay.BAG
+   * @param maxActions most actions a single game may take
+   */
+  public ReplayRoundTrip(int cols, int rows, int generator, int maxActions) {
+    this.cols = cols;
+    this.rows = rows;
+    this.generator = generator;
+    this.maxActions = maxActions;
+  }
+
+  /**
+   * Record a seeded game to a file, play it back and compare.
+   *
+   * @param path file to record to
+   * @param seed seed of the game
+   * @return every way the replay differs from the game, empty if it round trips
+   * @throws IOException          if the file cannot be written or read
+   * @throws InterruptedException if interrupted while the recording is written out
+   */
+  public List<String> check(Path path, long seed) throws IOException, InterruptedException {
+    var problems = new ArrayList<String>();
+    var engine = new GameEngine(cols, rows,
+        generator == Replay.BAG ? new BagPieceGenerator(seed) : new UniformPieceGenerator(seed));
+    var recorder = new ReplayRecorder(path, cols, rows, generator, seed);
+    int actions = play(engine, recorder, new SplittableRandom(seed));
+    recorder.close(engine.getScore());
+    if (!recorder.awaitWritten(60_000)) {
+      problems.add("Recording not written out in time");
+      return problems;
+    }
+
+    var reader = ReplayReader.open(path);
+    if (actions >= Replay.KEYFRAME_INTERVAL * 2 && reader.getKeyframes().isEmpty()) {
+      problems.add("No keyframes for " + actions + " actions");
+    }
+    try {
+      ReplayPlayer.checkKeyframes(reader);
+    } catch (IllegalArgumentException e) {
+      problems.add(e.getMessage());
+    }
+
+    var linear = new ReplayPlayer(reader);
+    int score = linear.playToEnd();
+    if (score != engine.getScore() || linear.getClaimedScore() != engine.getScore()) {
+      problems.add("Game scored " + engine.getScore() + ", replay scored " + score + " and claimed "
+          + linear.getClaimedScore());
+    }
+    if (!linear.getEngine().snapshot(null).matches(engine.snapshot(null))) {
+      problems.add("Replay ends on a different board from the game");
+    }
+    if (linear.getAction() != actions + 1) {
+      problems.add("Game took " + actions + " actions, replay has " + (linear.getAction() - 1));
+    }
+
+    //Take the state playing through reaches at points spread over the game, then seek to them in a random order
+    var random = new SplittableRandom(~seed);
+    var targets = new int[SEEKS];
+    var expected = new Keyframe[SEEKS];
+    linear = new ReplayPlayer(reader);
+    for (var i = 0; i < SEEKS; i++) {
+      targets[i] = (int) ((long) actions * i / SEEKS) + random.nextInt(Replay.KEYFRAME_INTERVAL);
+    }
+    Arrays.sort(targets);
+    for (var i = 0; i < SEEKS; i++) {
+      linear.seek(targets[i]);
+      expected[i] = linear.keyframe();
+    }
+    var seeking = new ReplayPlayer(reader);
+    for (var n = 0; n < SEEKS; n++) {
+      int i = random.nextInt(SEEKS);
+      seeking.seek(targets[i]);
+      if (!seeking.keyframe().matches(expected[i])) {
+        problems.add("Seeking to action " + targets[i] + " gives a different state from playing up to it");
+        break;
+      }
+    }
+
+    if (!rejectsMovedCell(path, reader)) {
+      problems.add("A keyframe with a cell moved but its hash kept is accepted");
+    }
+    return problems;
+  }
+
+  /**
+   * Move one occupied cell of a keyframe to an empty cell in a copy of a replay, keeping the hash the keyframe claims,
+   * and check that the copy is rejected. The number of cells is unchanged, so only comparing the cells with the state
+   * the actions reach can tell.
+   *
+   * @param path   the replay file
+   * @param reader reader of the replay
+   * @return true if the copy is rejected, or if no keyframe has both an occupied and an empty cell
+   * @throws IOException if the file cannot be read
+   */
+  private boolean rejectsMovedCell(Path path, ReplayReader reader) throws IOException {
+    var data = ByteBuffer.wrap(Files.readAllBytes(path));
+    int cells = cols * rows;
+    var scratch = ByteBuffer.allocate(Keyframe.MIN_SIZE + Snapshot.maxSize(cols, rows) * 2);
+    //The index starts where the actions end, which the trailer holds
+    int start = data.getInt(data.limit() - 2 * Integer.BYTES);
+    for (var keyframe : reader.getKeyframes()) {
+      keyframe.write(scratch.clear());
+      int length = scratch.position();
+      keyframe.snapshot().write(scratch.clear());
+      //The occupancy words follow the varints of the keyframe, then the score, pieces, hash and number of words
+      int words = start + length - scratch.position() + 4 * Integer.BYTES + 2 + Long.BYTES + Short.BYTES;
+      start += length;
+      int occupied = -1;
+      int empty = -1;
+      for (var cell = 0; cell < cells; cell++) {
+        boolean set = (data.getLong(words + (cell >>> 6) * Long.BYTES) & (1L << cell)) != 0;
+        if (set && occupied < 0) {
+          occupied = cell;
+        } else if (!set && empty < 0) {
+          empty = cell;
+        }
+      }
+      if (occupied < 0 || empty < 0) {
+        continue;
+      }
+      for (int cell : new int[] {occupied, empty}) {
+        int word = words + (cell >>> 6) * Long.BYTES;
+        data.putLong(word, data.getLong(word) ^ (1L << cell));
+      }
+      try {
+        ReplayPlayer.checkKeyframes(new ReplayReader(data));
+        return false;
+      } catch (IllegalArgumentException e) {
+        return true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Play a game of random actions to the end, or until it has taken the most actions allowed, recording each action
+   * and applying it the way Game does.
+   *
+   * @param engine   the engine to play on
+   * @param recorder records every action
+   * @param random   chooses the actions
+   * @return the number of actions taken
+   */
+  private int play(GameEngine engine, ReplayRecorder recorder, SplittableRandom random) {
+    var history = new History();
+    engine.start();
+    var actions = 0;
+    while (!engine.isGameOver() && actions < maxActions) {
+      int roll = random.nextInt(100);
+      if (roll < 55) {
+        //Mostly place where the piece fits, so games last long enough to take keyframes
+        int x = random.nextInt(cols);
+        int y = random.nextInt(rows);
+        for (var tries = 0; tries < 8 && !engine.getGrid().canPlayPiece(engine.getCurrentPiece(), x, y); tries++) {
+          x = random.nextInt(cols);
+          y = random.nextInt(rows);
+        }
+        recorder.place(x, y);
+        var before = engine.snapshot(history.latest());
+        if (engine.place(x, y)) {
+          history.record(before);
+        }
+      } else if (roll < 70) {
+        int rotations = 1 + random.nextInt(3);
+        recorder.rotate(rotations);
+        engine.rotate(rotations);
+      } else if (roll < 80) {
+        recorder.swap();
+        engine.swap();
+      } else if (roll < 82) {
+        recorder.timeout();
+        var before = engine.snapshot(history.latest());
+        if (engine.timeout()) {
+          history.record(before);
+        }
+      } else if (roll < 95) {
+        boolean undo = roll < 89;
+        if (undo) {
+          recorder.undo();
+        } else {
+          recorder.redo();
+        }
+        var current = engine.snapshot(history.latest());
+        var snapshot = undo ? history.undo(current) : history.redo(current);
+        if (snapshot != null) {
+          engine.restore(snapshot);
+        }
+      } else if (roll < 97) {
+        recorder.addLife();
+        var before = engine.snapshot(history.latest());
+        if (engine.addLife()) {
+          history.record(before);
+        }
+      } else {
+        //Nothing can be done while paused, so a pause is always followed by resuming
+        recorder.pause();
+        recorder.resume();
+        actions++;
+      }
+      actions++;
+    }
+    return actions;
+  }
+
+  /**
+   * Run the check from the command line. Exits with status 1 if any game does not round trip.
+
+   * Options: --games N, --seed S, --size COLSxROWS, --generator uniform|bag, --max-actions M. Replays are written to a
+   * temporary folder, which is deleted afterwards.
+   *
+   * @param args commandline arguments
+   * @throws IOException          if the replays cannot be written or read
+   * @throws InterruptedException if interrupted while a recording is written out
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int games = 50;
+    long seed = System.nanoTime();
+    int cols = 5;
+    int rows = 5;
+    int generator = Replay.UNIFORM;
+    int maxActions = 2000;
+
+    var arguments = new CommandLine(args, USAGE);
+    while (arguments.hasNext()) {
+      switch (arguments.next()) {
+        case "--games" -> games = Integer.parseInt(arguments.value());
+        case "--seed" -> seed = Long.parseLong(arguments.value());
+        case "--size" -> {
+          var size = arguments.value().split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "--generator" -> {
+          var value = arguments.value();
+          generator = switch (value) {
+            case "uniform" -> Replay.UNIFORM;
+            case "bag" -> Replay.BAG;
+            default -> throw new IllegalArgumentException("Unknown generator: " + value);
+          };
+        }
+        case "--max-actions" -> maxActions = Integer.parseInt(arguments.value());
+        default -> throw arguments.unknown();
+      }
+    }
+
+    logger.info("Round tripping {} games on {}x{}, seed {}", games, cols, rows, seed);
+    var check = new ReplayRoundTrip(cols, rows, generator, maxActions);
+    var folder = Files.createTempDirectory("replays");
+    var failed = 0;
+    try {
+      for (var game = 0; game < games; game++) {
+        var path = folder.resolve("game-" + game + ".trp");
+        var problems = check.check(path, seed + game);
+        if (!problems.isEmpty()) {
+          failed++;
+          logger.error("Game {} with seed {} does not round trip: {}", game, seed + game, problems);
+        }
+        Files.delete(path);
+      }
+    } finally {
+      Files.deleteIfExists(folder);
+    }
+    logger.info("{} of {} games round tripped", games - failed, games);
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+}
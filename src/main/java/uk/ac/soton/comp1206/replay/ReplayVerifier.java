@@ -0,0 +1,314 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.utility.CommandLine;
+
+/**
+ * Checks recorded games before their scores are accepted. Each replay is played again by a ReplayPlayer, under the
+ * same rules as the game, and is rejected if:
+
+ * - it cannot be read, or was cut off before the end of the game
+ * - the final score recorded does not match the score the actions earn
+ * - the time for a piece ran out sooner than the countdown allows
+ * - the player acted after the time for a piece should have run out
+ * - pieces were played faster than a person can
+ * - a move was undone or redone, which only a practice game can do
+ * - the player acted while the game was paused, or paused or resumed out of turn
+
+ * A verifier keeps no state between replays, so any number of threads can share one. Replays are verified in parallel
+ * and their results written to a slot each, as the simulation runner does.
+ */
+public class ReplayVerifier {
+
+  private static final Logger logger = LogManager.getLogger(ReplayVerifier.class);
+
+  private static final String USAGE = "ReplayVerifier [--threads T] [--tolerance MS] [--max-rate N] [--all]"
+      + " FILE|FOLDER|- ...";
+
+  /**
+   * The most problems reported for a single replay.
+   */
+  private static final int MAX_PROBLEMS = 10;
+
+  /**
+   * Milliseconds the countdown may be out by, for the timer thread waking late and the time taken to record.
+   */
+  private final long tolerance;
+
+  /**
+   * The most pieces that may be played within a second.
+   */
+  private final int maxPlacementsPerSecond;
+
+  /**
+   * The result of verifying one replay.
+   *
+   * @param path         the replay file, or null if it was not read from a file
+   * @param claimedScore final score recorded, or -1 if there was none
+   * @param score        score earned by playing the actions
+   * @param actions      number of actions played
+   * @param duration     milliseconds from the start of the game to the last action
+   * @param problems     every reason to reject the replay, empty if it is valid
+   */
+  public record Result(Path path, int claimedScore, int score, int actions, long duration, List<String> problems) {
+
+    /**
+     * Check whether the replay was found valid.
+     *
+     * @return true if there were no problems
+     */
+    public boolean isValid() {
+      return problems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %s, claimed %d, scored %d, %d actions in %.1f s%s", path,
+          isValid() ? "valid" : "REJECTED", claimedScore, score, actions, duration / 1000.0,
+          isValid() ? "" : "\n  " + String.join("\n  ", problems));
+    }
+  }
+
+  /**
+   * Create a new verifier.
+   *
+   * @param tolerance              milliseconds the countdown may be out by, at least 0
+   * @param maxPlacementsPerSecond the most pieces that may be played within a second, at least 1
+   * @throws IllegalArgumentException if either limit is out of range
+   */
+  public ReplayVerifier(long tolerance, int maxPlacementsPerSecond) {
+    if (tolerance < 0) {
+      throw new IllegalArgumentException("Invalid tolerance: " + tolerance);
+    }
+    if (maxPlacementsPerSecond < 1) {
+      throw new IllegalArgumentException("Invalid placement rate: " + maxPlacementsPerSecond);
+    }
+    this.tolerance = tolerance;
+    this.maxPlacementsPerSecond = maxPlacementsPerSecond;
+  }
+
+  /**
+   * Verify a replay file.
+   *
+   * @param path the file
+   * @return the result
+   */
+  public Result verify(Path path) {
+    try {
+      return verify(path, ReplayReader.open(path));
+    } catch (IOException | RuntimeException e) {
+      return new Result(path, -1, 0, 0, 0, List.of("Cannot read replay: " + e.getMessage()));
+    }
+  }
+
+  /**
+   * Verify a replay.
+   *
+   * @param path   where the replay came from, for the result
+   * @param reader the replay
+   * @return the result
+   */
+  public Result verify(Path path, ReplayReader reader) {
+    var problems = new ArrayList<String>();
+    var player = new ReplayPlayer(reader);
+    var engine = player.getEngine();
+
+    //The countdown for the first piece starts once the scene is shown, a little after recording starts
+    var countdownKnown = false;
+    long countdownStart = 0;
+    int delay = engine.getTimerDelay();
+    long pausedAt = -1;
+    var undone = false;
+
+    //Times of the last pieces played, oldest first from next
+    var placed = new long[maxPlacementsPerSecond];
+    var next = 0;
+    var placements = 0;
+
+    try {
+      int type;
+      var pausedBefore = false;
+      while ((type = player.step()) >= 0 && problems.size() < MAX_PROBLEMS) {
+        long time = player.getTime();
+        if (pausedBefore && type != Replay.RESUME && type != Replay.END) {
+          problems.add(String.format("Action at %d ms while the game was paused", time));
+        } else if (!pausedBefore && type == Replay.RESUME) {
+          problems.add(String.format("Resumed at %d ms without being paused", time));
+        }
+        if (countdownKnown && type == Replay.TIMEOUT && time < countdownStart + delay - tolerance) {
+          problems.add(String.format("Time ran out at %d ms, %d ms into a %d ms countdown", time,
+              time - countdownStart, delay));
+        } else if (countdownKnown && type != Replay.TIMEOUT && type != Replay.END && type != Replay.RESUME
+            && time > countdownStart + delay + tolerance) {
+          problems.add(String.format("Action at %d ms, %d ms into a %d ms countdown", time, time - countdownStart,
+              delay));
+          //Only report the first late action of a countdown
+          countdownKnown = false;
+        }
+
+        if ((type == Replay.UNDO || type == Replay.REDO) && !undone) {
+          problems.add(String.format("Move undone or redone at %d ms, which only a practice game can do", time));
+          undone = true;
+        }
+
+        if (type == Replay.PAUSE && player.isPaused() && !pausedBefore) {
+          pausedAt = time;
+        } else if (type == Replay.RESUME && pausedBefore) {
+          //The countdown carries on where it stopped, so it ends as much later as the game was paused
+          countdownStart += time - pausedAt;
+          pausedAt = -1;
+        }
+
+        if (player.isCountdownRestarted()) {
+          countdownKnown = true;
+          countdownStart = time;
+          delay = engine.getTimerDelay();
+          if (type == Replay.PLACE) {
+            if (placements >= placed.length && time - placed[next] < 1000) {
+              problems.add(String.format("%d pieces played in %d ms up to %d ms", placed.length + 1,
+                  time - placed[next], time));
+              //Only report a burst again once it has gone on for as many pieces again
+              placements = -1;
+            }
+            placed[next] = time;
+            next = (next + 1) % placed.length;
+            placements++;
+          }
+        }
+        pausedBefore = player.isPaused();
+      }
+    } catch (RuntimeException e) {
+      problems.add("Corrupt replay at action " + player.getAction() + ": " + e.getMessage());
+    }
+
+    if (player.getClaimedScore() < 0) {
+      problems.add("Replay ends without the end of the game");
+    } else if (player.getClaimedScore() != engine.getScore()) {
+      problems.add("Claimed score " + player.getClaimedScore() + " but the actions score " + engine.getScore());
+    }
+    return new Result(path, player.getClaimedScore(), engine.getScore(), player.getAction(), player.getTime(),
+        List.copyOf(problems));
+  }
+
+  /**
+   * Verify many replay files in parallel.
+   *
+   * @param paths       the files
+   * @param parallelism number of threads to verify on
+   * @return a result for each file, in the same order
+   */
+  public List<Result> verifyAll(List<Path> paths, int parallelism) {
+    var results = new Result[paths.size()];
+    var pool = new ForkJoinPool(parallelism);
+    try {
+      pool.submit(() -> IntStream.range(0, results.length).parallel()
+          .forEach(i -> results[i] = verify(paths.get(i)))).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Verification interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Verification failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    return List.of(results);
+  }
+
+  /**
+   * Find the replay files named on the command line: replay files, folders of them, or - to read paths from standard
+   * input, one to a line.
+   *
+   * @param names the names
+   * @return the replay files
+   * @throws IOException if a folder or standard input cannot be read
+   */
+  private static List<Path> findReplays(List<String> names) throws IOException {
+    var paths = new ArrayList<Path>();
+    for (var name : names) {
+      if (name.equals("-")) {
+        var in = new BufferedReader(new InputStreamReader(System.in));
+        in.lines().filter(line -> !line.isBlank()).map(line -> Path.of(line.strip())).forEach(paths::add);
+      } else if (Files.isDirectory(Path.of(name))) {
+        try (Stream<Path> files = Files.list(Path.of(name))) {
+          files.filter(file -> file.toString().endsWith(".trp")).sorted().forEach(paths::add);
+        } catch (UncheckedIOException e) {
+          throw e.getCause();
+        }
+      } else {
+        paths.add(Path.of(name));
+      }
+    }
+    return paths;
+  }
+
+  /**
+   * Verify replays from the command line. Exits with status 1 if any replay is rejected.
+
+   * Usage: [--threads T] [--tolerance MS] [--max-rate N] [--all] FILE|FOLDER|- ... Results are logged, and only
+   * rejected replays are listed unless --all is given.
+   *
+   * @param args commandline arguments
+   * @throws IOException if the replays cannot be listed
+   */
+  public static void main(String[] args) throws IOException {
+    int threads = Runtime.getRuntime().availableProcessors();
+    long tolerance = 500;
+    int maxRate = 10;
+    var all = false;
+    var names = new ArrayList<String>();
+
+    var arguments = new CommandLine(args, USAGE);
+    while (arguments.hasNext()) {
+      var argument = arguments.next();
+      switch (argument) {
+        case "--threads" -> threads = Integer.parseInt(arguments.value());
+        case "--tolerance" -> tolerance = Long.parseLong(arguments.value());
+        case "--max-rate" -> maxRate = Integer.parseInt(arguments.value());
+        case "--all" -> all = true;
+        default -> {
+          if (argument.startsWith("--")) {
+            throw arguments.unknown();
+          }
+          names.add(argument);
+        }
+      }
+    }
+
+    var verifier = new ReplayVerifier(tolerance, maxRate);
+    var paths = findReplays(names);
+    logger.info("Verifying {} replays with {} threads", paths.size(), threads);
+    long start = System.nanoTime();
+    var results = verifier.verifyAll(paths, threads);
+    long elapsed = System.nanoTime() - start;
+
+    var rejected = 0;
+    for (var result : results) {
+      if (!result.isValid()) {
+        rejected++;
+      }
+      if (!result.isValid()) {
+        logger.warn("{}", result);
+      } else if (all) {
+        logger.info("{}", result);
+      }
+    }
+    logger.info("{} replays verified, {} rejected, in {} ms ({} replays/s)", results.size(), rejected,
+        elapsed / 1_000_000, elapsed == 0 ? 0 : results.size() * 1_000_000_000L / elapsed);
+    if (rejected > 0) {
+      System.exit(1);
+    }
+  }
+}
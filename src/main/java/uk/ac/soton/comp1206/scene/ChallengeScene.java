@@ -1,11 +1,12 @@
 package uk.ac.soton.comp1206.scene;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 
+import javafx.application.Platform;
 import javafx.scene.input.KeyEvent;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
@@ -15,17 +16,24 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
-import javafx.util.Duration;
+import uk.ac.soton.comp1206.ai.HintEngine;
+import uk.ac.soton.comp1206.ai.Oracle;
+import uk.ac.soton.comp1206.utility.Config;
 import uk.ac.soton.comp1206.utility.Multimedia;
-import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.component.BoardView;
+import uk.ac.soton.comp1206.component.CanvasBoard;
+import uk.ac.soton.comp1206.component.CountdownBar;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.PieceBoard;
+import uk.ac.soton.comp1206.event.GameEvent;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.UniformPieceGenerator;
+import uk.ac.soton.comp1206.replay.Replay;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import org.apache.logging.log4j.LogManager;
@@ -37,6 +45,17 @@ import org.apache.logging.log4j.Logger;
 public class ChallengeScene extends BaseScene {
 
   private static final Logger logger = LogManager.getLogger(MenuScene.class);
+
+  /**
+   * Boards with more columns or rows than this are drawn on a single canvas instead of a block per cell.
+   */
+  private static final int LARGE_BOARD = 10;
+
+  /**
+   * The oracle file written by OracleBuilder. If it is there, hints on a 5x5 board come from it instead of a search.
+   */
+  private static final Path ORACLE_FILE = Path.of("oracle.bin");
+
   /**
    * HighScore achieved by the player.
    */
@@ -54,7 +73,7 @@ public class ChallengeScene extends BaseScene {
   /**
    * GameBoard
    */
-  protected GameBoard board;
+  protected BoardView board;
   /**
    * Game mode
    */
@@ -66,7 +85,7 @@ public class ChallengeScene extends BaseScene {
   /**
    * Countdown timer in bottom box.
    */
-  protected Rectangle timerBar;
+  protected CountdownBar timerBar;
   /**
    * main Pane of the UI
    */
@@ -79,6 +98,22 @@ public class ChallengeScene extends BaseScene {
    * Next piece
    */
   protected PieceBoard comingPiece;
+  /**
+   * Works out the recommended move in the background.
+   */
+  protected HintEngine hintEngine;
+  /**
+   * Whether the recommended move is shown on the board.
+   */
+  protected boolean hintsEnabled = false;
+  /**
+   * Whether the game is paused, when the board and pieces are hidden and no hints are shown.
+   */
+  protected boolean paused = false;
+  /**
+   * Whether this is a practice game, where moves can be undone and the score is not kept.
+   */
+  protected final boolean practice;
 
   /**
    * Create a new challenge scene.
@@ -86,7 +121,18 @@ public class ChallengeScene extends BaseScene {
    * @param gameWindow the Game Window
    */
   public ChallengeScene(GameWindow gameWindow) {
+    this(gameWindow, false);
+  }
+
+  /**
+   * Create a new challenge scene, for a scored challenge or for practice.
+   *
+   * @param gameWindow the Game Window
+   * @param practice   true for a practice game, where moves can be undone and the score is not kept
+   */
+  public ChallengeScene(GameWindow gameWindow, boolean practice) {
     super(gameWindow);
+    this.practice = practice;
     logger.info("Creating Challenge Scene");
   }
 
@@ -100,6 +146,7 @@ public class ChallengeScene extends BaseScene {
     setupGame();
 
     root = new GamePane(gameWindow.getWidth(), gameWindow.getHeight());
+    root.setGame(game);
 
     var challengePane = new StackPane();
     challengePane.setMaxWidth(gameWindow.getWidth());
@@ -110,13 +157,12 @@ public class ChallengeScene extends BaseScene {
     mainPane = new BorderPane();
     challengePane.getChildren().add(mainPane);
 
-    board = new GameBoard(game.getGrid(), gameWindow.getWidth() / 2, gameWindow.getWidth() / 2);
-    mainPane.setCenter(board);
+    board = createBoard(gameWindow.getWidth() / 2, gameWindow.getWidth() / 2);
+    mainPane.setCenter(board.getNode());
 
     /* Bottom Countdown */
     timer = new HBox();
-    timerBar = new Rectangle();
-    timerBar.setHeight(10);
+    timerBar = new CountdownBar(game, timer.widthProperty(), 10);
     timer.getChildren().add(timerBar);
     mainPane.setBottom(timer);
     /* Right side */
@@ -127,7 +173,22 @@ public class ChallengeScene extends BaseScene {
     powerUpBox();
 
     //Handle block on gameBoard grid being clicked
-    board.setOnBlockClick(this::blockClicked);
+    board.setOnCellClick(this::blockClicked);
+  }
+
+  /**
+   * Create the view of the board. Large boards are drawn on a single canvas, so they do not need a block and a bound
+   * property for every cell. Every board is drawn that way if the settings ask for it.
+   *
+   * @param width  the visual width
+   * @param height the visual height
+   * @return the board
+   */
+  protected BoardView createBoard(double width, double height) {
+    if (Config.getCanvasBoard().get() || game.getCols() > LARGE_BOARD || game.getRows() > LARGE_BOARD) {
+      return new CanvasBoard(game.getGrid(), width, height);
+    }
+    return new GameBoard(game.getGrid(), width, height);
   }
 
   private void playerProgressBox() {
@@ -177,45 +238,19 @@ public class ChallengeScene extends BaseScene {
   }
 
   /**
-   * Swap current piece with following Piece.
+   * Swap current piece with following Piece. The piece boards are updated when the game reports the new pieces.
    */
   protected void swap() {
     game.swapCurrentPiece();
     Multimedia.playAudio("pling.wav");
-    currentPiece.displayPiece(game.getCurrentPiece());
-    comingPiece.displayPiece(game.getFollowingPiece());
     logger.info("Blocks have been swapped.");
   }
 
-  /**
-   * Countdown animation for timer.
-   * Update according to gameLoop timer.
-   *
-   * @param time Time remaining.
-   */
-  public void updateTimer(int time) {
-    KeyValue start = new KeyValue(timerBar.widthProperty(), timer.getWidth());
-    KeyValue green = new KeyValue(timerBar.fillProperty(), Color.GREEN);
-    KeyValue yellow = new KeyValue(timerBar.fillProperty(), Color.YELLOW);
-    KeyValue red = new KeyValue(timerBar.fillProperty(), Color.RED);
-    KeyValue finish = new KeyValue(timerBar.widthProperty(), 0);
-
-    Timeline timeline = new Timeline();
-    timeline.getKeyFrames().add(new KeyFrame(new Duration(0), start));
-    timeline.getKeyFrames().add(new KeyFrame(new Duration(0), green));
-    timeline.getKeyFrames().add(new KeyFrame(new Duration((float) time / 2), yellow));
-    timeline.getKeyFrames().add(new KeyFrame(new Duration((float) time * 3 / 4), red));
-    timeline.getKeyFrames().add(new KeyFrame(new Duration(time), finish));
-    timeline.play();
-
-  }
-
   /**
    * Rotate current Piece to right.
    */
   public void rotate() {
     game.rotateCurrentPiece(1);
-    currentPiece.displayPiece(game.getCurrentPiece());
     Multimedia.playAudio("rotate.wav");
     logger.info("Block has been rotated to the right.");
   }
@@ -225,7 +260,6 @@ public class ChallengeScene extends BaseScene {
    */
   protected void rotateLeft() {
     game.rotateCurrentPiece(3);
-    currentPiece.displayPiece(game.getCurrentPiece());
     Multimedia.playAudio("rotate.wav");
     logger.info("Block has been rotated to the left.");
   }
@@ -243,7 +277,8 @@ public class ChallengeScene extends BaseScene {
     if (newHighScore.intValue() > this.hiiScore.get()) {
       this.hiiScore.set(newHighScore.intValue());
     }
-    if (newHighScore.intValue() < this.hiiScore.get()) {
+    //Games that are not ranked are only up against themselves
+    if (newHighScore.intValue() < this.hiiScore.get() && game.isRanked()) {
       if (newHighScore.intValue() > ScoresScene.loadScores().get(0).getValue()) {
         this.hiiScore.set(newHighScore.intValue());
       } else {
@@ -253,13 +288,92 @@ public class ChallengeScene extends BaseScene {
   }
 
   /**
-   * Replaces Current piece with new piece and updates PieceBoards.
+   * Replaces Current piece with new piece and updates PieceBoards. Also called when the pieces are rotated or swapped.
    *
    * @param piece piece to be replaced.
    */
   protected void nextPiece(GamePiece piece) {
     currentPiece.displayPiece(piece);
     comingPiece.displayPiece(game.getFollowingPiece());
+    requestHint();
+  }
+
+  /**
+   * Undo the last move, putting the board and pieces back as they were.
+   */
+  protected void undo() {
+    game.undo();
+  }
+
+  /**
+   * Redo the last move undone.
+   */
+  protected void redo() {
+    game.redo();
+  }
+
+  /**
+   * Pause the game, or resume it if it is paused.
+   */
+  protected void togglePause() {
+    if (game.isPaused()) {
+      game.resume();
+    } else {
+      game.pause();
+    }
+  }
+
+  /**
+   * Hide the board and pieces while the game is paused, so the countdown cannot be stopped to plan the next move, and
+   * show them again when it resumes.
+   *
+   * @param paused true if the game is now paused
+   */
+  protected void showPaused(boolean paused) {
+    this.paused = paused;
+    board.getNode().setVisible(!paused);
+    currentPiece.setVisible(!paused);
+    comingPiece.setVisible(!paused);
+    if (paused) {
+      hintEngine.cancel();
+      board.clearHint();
+    } else {
+      requestHint();
+    }
+  }
+
+  /**
+   * Turn showing the recommended move on or off.
+   */
+  protected void toggleHints() {
+    hintsEnabled = !hintsEnabled;
+    logger.info("Hints {}", hintsEnabled ? "on" : "off");
+    if (hintsEnabled) {
+      requestHint();
+    } else {
+      hintEngine.cancel();
+      board.clearHint();
+    }
+  }
+
+  /**
+   * Ask the hint engine for the recommended move for the current position, replacing any hint being shown. The
+   * search runs in the background and the hint is shown when it is found.
+   */
+  protected void requestHint() {
+    if (!hintsEnabled || paused || hintEngine == null) {
+      return;
+    }
+    board.clearHint();
+    var current = game.getCurrentPiece();
+    var following = game.getFollowingPiece();
+    hintEngine.request(game.getGrid().getBitGrid(), current, following, move -> {
+      if (move == Move.NONE || paused) {
+        return;
+      }
+      var piece = Move.isSwap(move) ? following : current;
+      board.showHint(piece.rotated(Move.rotations(move)), Move.x(move), Move.y(move));
+    });
   }
 
   private void statBox() {
@@ -322,10 +436,11 @@ public class ChallengeScene extends BaseScene {
   /**
    * Handle when a block is clicked.
    *
-   * @param gameBlock the Game Block that was clocked
+   * @param x column of the block that was clicked
+   * @param y row of the block that was clicked
    */
-  void blockClicked(GameBlock gameBlock) {
-    game.blockClicked(gameBlock);
+  void blockClicked(int x, int y) {
+    game.blockClicked(x, y);
   }
 
   /**
@@ -335,7 +450,28 @@ public class ChallengeScene extends BaseScene {
     logger.info("Starting a new challenge");
 
     //Start new game
-    game = new Game(5, 5);
+    var size = Config.getBoardSize().get();
+    var seed = System.nanoTime();
+    game = new Game(size, size, new UniformPieceGenerator(seed));
+    game.setPractice(practice);
+    if (Config.getRecordReplays().get()) {
+      var path = Path.of("replays", "replay-" + System.currentTimeMillis() + ".trp");
+      try {
+        game.setRecorder(new ReplayRecorder(path, size, size, Replay.UNIFORM, seed));
+      } catch (IOException e) {
+        logger.error("Cannot record replay to {}", path, e);
+      }
+    }
+    //Large boards have so many placements that looking one piece ahead is enough for a hint
+    var depth = size > LARGE_BOARD ? 1 : 2;
+    hintEngine = new HintEngine(game.getCols(), game.getRows(), 16, depth, Platform::runLater);
+    if (size == Oracle.SIZE && Files.exists(ORACLE_FILE)) {
+      try {
+        hintEngine.setOracle(Oracle.open(ORACLE_FILE));
+      } catch (IOException e) {
+        logger.error("Cannot read oracle from {}, hints will search instead", ORACLE_FILE, e);
+      }
+    }
   }
 
   /**
@@ -355,39 +491,54 @@ public class ChallengeScene extends BaseScene {
    * @param keyEvent the key that was pressed
    */
   public void keyInputs(KeyEvent keyEvent) {
+    //Shortcut chords never play the game. Undo and redo are only for practice, as they would let a scored game take
+    //back lost lives
+    if (keyEvent.isShortcutDown()) {
+      if (practice) {
+        switch (keyEvent.getCode()) {
+          case Z -> undo();
+          case Y -> redo();
+        }
+      }
+      return;
+    }
     switch (keyEvent.getCode()) {
       case W, UP -> {
         if (y > 0) {
           y--;
-          board.hover(board.getBlock(x, y));
+          board.hover(x, y);
         }
       }
       case A, LEFT -> {
         if (x > 0) {
           x--;
-          board.hover(board.getBlock(x, y));
+          board.hover(x, y);
         }
       }
       case S, DOWN -> {
         if (y < game.getRows() - 1) {
           y++;
-          board.hover(board.getBlock(x, y));
+          board.hover(x, y);
         }
       }
       case D, RIGHT -> {
         if (x < game.getCols() - 1) {
           x++;
-          board.hover(board.getBlock(x, y));
+          board.hover(x, y);
         }
       }
       case Q, Z, OPEN_BRACKET -> rotateLeft();
       case E, C, CLOSE_BRACKET -> rotate();
-      case X, ENTER -> blockClicked(board.getBlock(x, y));
+      case X, ENTER -> blockClicked(x, y);
       case R, SPACE -> swap();
+      case H -> toggleHints();
+      case P -> togglePause();
       case ESCAPE -> {
         Multimedia.playAudio("transition.wav");
         logger.info("Shutting game");
+        timerBar.stop();
         game.stopTimer();
+        hintEngine.shutdown();
         gameWindow.startMenu();
       }
     }
@@ -401,15 +552,18 @@ public class ChallengeScene extends BaseScene {
     Multimedia.playBackgroundMusic("game.mp3");
     game.setOnLineCleared(this::fadeLine);
     game.setNextPieceListener(this::nextPiece);
-    game.setOnGameLoop(this::updateTimer);
     game.scoreProperty().addListener(this::getHighScore);
-    scene.setOnKeyPressed(this::keyInputs);
-    hiiScore.set(ScoresScene.loadScores().get(0).getValue());
-    game.start();
     game.setOnGameOver(() -> {
+      timerBar.stop();
       game.stopTimer();
+      hintEngine.shutdown();
       gameWindow.startScoresScene(game);
     });
+    game.getEvents().subscribe(GameEvent.Paused.class, Platform::runLater, event -> showPaused(event.paused()));
+    scene.setOnKeyPressed(this::keyInputs);
+    hiiScore.set(game.isRanked() ? ScoresScene.loadScores().get(0).getValue() : 0);
+    timerBar.start();
+    game.start();
     logger.info("Initialising Challenge");
   }
 }
@@ -10,14 +10,19 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
+import uk.ac.soton.comp1206.replay.ReplayReader;
+import uk.ac.soton.comp1206.replay.ReplayPlayer;
 import uk.ac.soton.comp1206.utility.Multimedia;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.ui.SettingsDialog;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -91,16 +96,20 @@ public class MenuScene extends BaseScene {
 
     //setting up single Player, multiplayer, intructions and exit buttons.
     Text singlePlayer = new Text("Single Player");
+    Text practice = new Text("Practice");
+    practice.getStyleClass().add("menuItem");
     Text instructions = new Text("Instructions");
     Text settings = new Text("Settings");
     settings.getStyleClass().add("menuItem");
+    Text replays = new Text("Replays");
+    replays.getStyleClass().add("menuItem");
     Text exit = new Text("Exit");
 
     singlePlayer.getStyleClass().add("menuItem");
     instructions.getStyleClass().add("menuItem");
     exit.getStyleClass().add("menuItem");
 
-    menuBox.getChildren().addAll(singlePlayer,settings, instructions, exit);
+    menuBox.getChildren().addAll(singlePlayer, practice, settings, replays, instructions, exit);
     mainPane.setBottom(menuBox);
 
     settings.setOnMouseClicked(event -> {
@@ -114,6 +123,15 @@ public class MenuScene extends BaseScene {
       Multimedia.playAudio("transition.wav");
     });
 
+    // starts a practice game, where moves can be undone.
+    practice.setOnMouseClicked(event -> {
+      gameWindow.startPractice();
+      Multimedia.playAudio("transition.wav");
+    });
+
+    // opens a recorded game.
+    replays.setOnMouseClicked(event -> openReplay());
+
     // starts instructions scene.
     instructions.setOnMouseClicked(event -> {
       gameWindow.startInstructions();
@@ -126,6 +144,32 @@ public class MenuScene extends BaseScene {
     });
   }
 
+  /**
+   * Choose a recorded game and play it back.
+   */
+  private void openReplay() {
+    var chooser = new FileChooser();
+    chooser.setTitle("Open Replay");
+    chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("TetrECS replays", "*.trp"));
+    var folder = new File("replays");
+    if (folder.isDirectory()) {
+      chooser.setInitialDirectory(folder);
+    }
+    var file = chooser.showOpenDialog(getScene().getWindow());
+    if (file == null) {
+      return;
+    }
+    try {
+      var reader = ReplayReader.open(file.toPath());
+      ReplayPlayer.checkKeyframes(reader);
+      Multimedia.playAudio("transition.wav");
+      gameWindow.startReplay(reader);
+    } catch (IOException | IllegalArgumentException e) {
+      logger.error("Cannot open replay " + file, e);
+      Multimedia.playAudio("fail.wav");
+    }
+  }
+
   /**
    * Initialise the menu.
    */
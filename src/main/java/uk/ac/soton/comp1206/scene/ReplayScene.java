@@ -0,0 +1,262 @@
+package uk.ac.soton.comp1206.scene;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.BoardView;
+import uk.ac.soton.comp1206.component.CanvasBoard;
+import uk.ac.soton.comp1206.component.GameBoard;
+import uk.ac.soton.comp1206.component.PieceBoard;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.replay.Replay;
+import uk.ac.soton.comp1206.replay.ReplayPlayer;
+import uk.ac.soton.comp1206.replay.ReplayReader;
+import uk.ac.soton.comp1206.ui.GamePane;
+import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.utility.Config;
+import uk.ac.soton.comp1206.utility.Multimedia;
+
+/**
+ * Plays a recorded game back on a board, at the recorded pace or up to 16 times faster. Playback can be paused, stepped
+ * one action at a time and moved to any point, which seeks through the keyframes of the replay.
+
+ * Keys: Space pauses, Up and Down change the speed, Left and Right step one action, Page Up and Page Down jump a
+ * keyframe, Home goes back to the start and Escape returns to the menu.
+ */
+public class ReplayScene extends BaseScene {
+
+  private static final Logger logger = LogManager.getLogger(ReplayScene.class);
+
+  /**
+   * Boards with more columns or rows than this are drawn on a single canvas instead of a block per cell.
+   */
+  private static final int LARGE_BOARD = 10;
+
+  /**
+   * The slowest and fastest playback speeds.
+   */
+  private static final int MIN_SPEED = 1;
+  private static final int MAX_SPEED = 16;
+
+  /**
+   * Plays the recorded game on its engine.
+   */
+  private final ReplayPlayer player;
+
+  /**
+   * The grid of the engine, viewed by the board.
+   */
+  private final Grid grid;
+
+  private BoardView board;
+  private PieceBoard currentPiece;
+  private PieceBoard comingPiece;
+  private final Text score = new Text();
+  private final Text level = new Text();
+  private final Text lives = new Text();
+  private final Text multiplier = new Text();
+  private final Text status = new Text();
+
+  /**
+   * The pieces shown, to only redraw them when they change.
+   */
+  private GamePiece shownCurrent;
+  private GamePiece shownFollowing;
+
+  /**
+   * Speed of playback, as a multiple of the recorded pace.
+   */
+  private int speed = MIN_SPEED;
+
+  /**
+   * Whether playback is paused.
+   */
+  private boolean paused = false;
+
+  /**
+   * Milliseconds of the recorded game played so far.
+   */
+  private double clock = 0;
+
+  /**
+   * Advances the clock every frame and applies the actions it has passed.
+   */
+  private final AnimationTimer ticker = new AnimationTimer() {
+    private long last = -1;
+
+    @Override
+    public void handle(long now) {
+      if (last >= 0 && !paused) {
+        clock += (now - last) / 1_000_000.0 * speed;
+        player.playUntil((long) clock);
+      }
+      last = now;
+      refresh();
+    }
+  };
+
+  /**
+   * Create a new replay scene.
+   *
+   * @param gameWindow the Game Window
+   * @param reader     the replay to play
+   */
+  public ReplayScene(GameWindow gameWindow, ReplayReader reader) {
+    super(gameWindow);
+    this.player = new ReplayPlayer(reader);
+    this.grid = new Grid(player.getEngine().getGrid());
+    logger.info("Creating Replay Scene for a {} x {} game", reader.getCols(), reader.getRows());
+  }
+
+  /**
+   * Build the replay window.
+   */
+  @Override
+  public void build() {
+    logger.info("Building " + this.getClass().getName());
+
+    root = new GamePane(gameWindow.getWidth(), gameWindow.getHeight());
+
+    var replayPane = new StackPane();
+    replayPane.setMaxWidth(gameWindow.getWidth());
+    replayPane.setMaxHeight(gameWindow.getHeight());
+    replayPane.getStyleClass().add("menu-background");
+    root.getChildren().add(replayPane);
+
+    var mainPane = new BorderPane();
+    replayPane.getChildren().add(mainPane);
+
+    double size = gameWindow.getWidth() / 2.0;
+    if (Config.getCanvasBoard().get() || grid.getCols() > LARGE_BOARD || grid.getRows() > LARGE_BOARD) {
+      board = new CanvasBoard(grid, size, size);
+    } else {
+      board = new GameBoard(grid, size, size);
+    }
+    mainPane.setCenter(board.getNode());
+
+    //Score and lives along the top
+    var statsBar = new HBox(135);
+    statsBar.setAlignment(Pos.CENTER);
+    BorderPane.setMargin(statsBar, new Insets(10, 0, 0, 0));
+    var title = new Text("Replay");
+    title.getStyleClass().add("bigTitle");
+    statsBar.getChildren().addAll(labelled("Score", score, "score"), title, labelled("Lives", lives, "lives"));
+    mainPane.setTop(statsBar);
+
+    //Level, multiplier and pieces on the right
+    currentPiece = new PieceBoard(100, 100);
+    currentPiece.setPadding(new Insets(5, 0, 0, 0));
+    currentPiece.setMiddleCircle();
+    comingPiece = new PieceBoard(75, 75);
+    comingPiece.setPadding(new Insets(15, 0, 0, 0));
+    comingPiece.setMiddleCircle();
+    var progressBox = new VBox();
+    progressBox.setAlignment(Pos.CENTER);
+    progressBox.setPadding(new Insets(0, 15, 0, 0));
+    progressBox.getChildren().addAll(labelled("Level", level, "level"),
+        labelled("Multiplier: ", multiplier, "hiscore"), currentPiece, comingPiece);
+    mainPane.setRight(progressBox);
+
+    //Position and speed along the bottom
+    status.getStyleClass().add("heading");
+    BorderPane.setAlignment(status, Pos.CENTER);
+    BorderPane.setMargin(status, new Insets(0, 0, 10, 0));
+    mainPane.setBottom(status);
+  }
+
+  /**
+   * Make a heading with a value under it.
+   *
+   * @param heading    text of the heading
+   * @param value      the value
+   * @param styleClass style of the value
+   * @return the box holding both
+   */
+  private VBox labelled(String heading, Text value, String styleClass) {
+    var label = new Text(heading);
+    label.getStyleClass().add("heading");
+    value.getStyleClass().add(styleClass);
+    var box = new VBox(label, value);
+    box.setAlignment(Pos.CENTER);
+    return box;
+  }
+
+  /**
+   * Show the state the player has reached.
+   */
+  private void refresh() {
+    var engine = player.getEngine();
+    score.setText(Integer.toString(engine.getScore()));
+    level.setText(Integer.toString(engine.getLevel()));
+    lives.setText(Integer.toString(engine.getLives()));
+    multiplier.setText(Integer.toString(engine.getMultiplier()));
+    if (engine.getCurrentPiece() != shownCurrent) {
+      shownCurrent = engine.getCurrentPiece();
+      currentPiece.displayPiece(shownCurrent);
+    }
+    if (engine.getFollowingPiece() != shownFollowing) {
+      shownFollowing = engine.getFollowingPiece();
+      comingPiece.displayPiece(shownFollowing);
+    }
+    long seconds = player.getTime() / 1000;
+    status.setText(String.format("%s %dx   action %d   %d:%02d", paused ? "Paused" : "Playing", speed,
+        player.getAction(), seconds / 60, seconds % 60) + (player.isFinished() ? "   End" : ""));
+  }
+
+  /**
+   * Move playback to a number of actions applied, and carry on from the time of the last one.
+   *
+   * @param action number of actions applied
+   */
+  private void seek(int action) {
+    player.seek(Math.max(action, 0));
+    clock = player.getTime();
+  }
+
+  /**
+   * Handle the keyboard controls.
+   *
+   * @param keyEvent the key that was pressed
+   */
+  private void keyInputs(KeyEvent keyEvent) {
+    switch (keyEvent.getCode()) {
+      case SPACE -> paused = !paused;
+      case UP -> speed = Math.min(speed * 2, MAX_SPEED);
+      case DOWN -> speed = Math.max(speed / 2, MIN_SPEED);
+      case RIGHT -> {
+        player.step();
+        clock = player.getTime();
+      }
+      case LEFT -> seek(player.getAction() - 1);
+      case PAGE_DOWN -> seek(player.getAction() + Replay.KEYFRAME_INTERVAL);
+      case PAGE_UP -> seek(player.getAction() - Replay.KEYFRAME_INTERVAL);
+      case HOME -> seek(0);
+      case ESCAPE -> {
+        ticker.stop();
+        Multimedia.playAudio("transition.wav");
+        gameWindow.startMenu();
+      }
+    }
+    refresh();
+  }
+
+  /**
+   * Initialise the scene and start playback.
+   */
+  @Override
+  public void initialise() {
+    scene.setOnKeyPressed(this::keyInputs);
+    refresh();
+    ticker.start();
+    logger.info("Initialising Replay");
+  }
+}
@@ -191,7 +191,8 @@ public class ScoresScene extends BaseScene {
    * UI to display the score.
    */
   public void newHighScore() {
-    if (!game.scores.isEmpty()) {
+    //A practice game could undo its way to any score, and other board sizes score differently, so neither is added
+    if (!game.scores.isEmpty() || !game.isRanked()) {
       giveScore.set(true);
       scoresListComp.reveal();
       logger.info("No new score");
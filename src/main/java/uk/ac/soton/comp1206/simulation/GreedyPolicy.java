@@ -0,0 +1,96 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.BitGrid;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.PieceShape;
+
+/**
+ * Plays the move that scores the most points straight away. Ties are broken in favour of the move that fills rows and
+ * columns which are already nearly full, and then at random.
+ */
+public class GreedyPolicy implements PlacementPolicy {
+
+  /**
+   * Choose the legal move with the best immediate score.
+   *
+   * @param engine the game being played
+   * @param random random source belonging to the game
+   * @return packed move, or Move.NONE if neither piece fits anywhere
+   */
+  @Override
+  public int choose(GameEngine engine, SplittableRandom random) {
+    BitGrid grid = engine.getGrid();
+    int chosen = Move.NONE;
+    long best = Long.MIN_VALUE;
+    int ties = 0;
+    for (var swap = 0; swap < 2; swap++) {
+      GamePiece piece = swap == 0 ? engine.getCurrentPiece() : engine.getFollowingPiece();
+      for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+        var rotated = piece.rotated(rotations);
+        long[] legal = grid.getLegalPlacements(rotated);
+        for (var word = 0; word < legal.length; word++) {
+          for (long bits = legal[word]; bits != 0; bits &= bits - 1) {
+            int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+            int x = index % grid.getCols();
+            int y = index / grid.getCols();
+            long value = evaluate(grid, rotated.getShape(), x, y);
+            if (value > best) {
+              best = value;
+              chosen = Move.of(x, y, rotations, swap == 1);
+              ties = 1;
+            } else if (value == best && random.nextInt(++ties) == 0) {
+              chosen = Move.of(x, y, rotations, swap == 1);
+            }
+          }
+        }
+      }
+    }
+    return chosen;
+  }
+
+  /**
+   * Value a placement by the blocks it would clear, then by how full the rows and columns it touches would be.
+   * Works from the fill counts of the grid, so nothing is played.
+   *
+   * @param grid  the grid
+   * @param shape shape to play
+   * @param x     column of the centre
+   * @param y     row of the centre
+   * @return value of the placement, higher is better
+   */
+  static long evaluate(BitGrid grid, PieceShape shape, int x, int y) {
+    int fullRows = 0;
+    int fullCols = 0;
+    int fill = 0;
+    for (var row = shape.getMinY(); row <= shape.getMaxY(); row++) {
+      int count = grid.getRowCount(y + row) + Integer.bitCount(shape.getRowPattern(row + 1));
+      fill += count * count;
+      if (count == grid.getCols()) {
+        fullRows++;
+      }
+    }
+    for (var col = shape.getMinX(); col <= shape.getMaxX(); col++) {
+      int count = grid.getColumnCount(x + col) + Integer.bitCount(columnPattern(shape, col + 1));
+      fill += count * count;
+      if (count == grid.getRows()) {
+        fullCols++;
+      }
+    }
+    int blocks = fullRows * grid.getCols() + fullCols * grid.getRows() - fullRows * fullCols;
+    return (long) (fullRows + fullCols) * blocks << 32 | fill;
+  }
+
+  /**
+   * Get the blocks of one column of the 3x3 grid of a shape as a 3 bit pattern.
+   *
+   * @param shape the shape
+   * @param col   column of the grid, from 0 to 2
+   * @return the pattern
+   */
+  private static int columnPattern(PieceShape shape, int col) {
+    return (shape.getMask() >>> col) & 0b001001001;
+  }
+}
@@ -0,0 +1,35 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.ai.Oracle;
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * Plays the move the Oracle rates best, as a reference for how well other policies play the 5x5 game. The oracle is
+ * read-only, so every policy can share one.
+ */
+public class OraclePolicy implements PlacementPolicy {
+
+  private final Oracle oracle;
+
+  /**
+   * Create a new policy.
+   *
+   * @param oracle the oracle to ask
+   */
+  public OraclePolicy(Oracle oracle) {
+    this.oracle = oracle;
+  }
+
+  /**
+   * Choose the move leaving the board with the highest value.
+   *
+   * @param engine the game being played
+   * @param random random source belonging to the game
+   * @return packed move, or Move.NONE if neither piece fits anywhere
+   */
+  @Override
+  public int choose(GameEngine engine, SplittableRandom random) {
+    return oracle.bestMove(engine.getGrid(), engine.getCurrentPiece(), engine.getFollowingPiece());
+  }
+}
@@ -0,0 +1,22 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * A placement policy decides the move to make for the current piece of a simulated game.
+
+ * A simulation asks for a new policy for every game, and only calls it from the thread playing that game, so a policy
+ * may keep scratch state of its own.
+ */
+public interface PlacementPolicy {
+
+  /**
+   * Choose the move to make for the current piece.
+   *
+   * @param engine the game being played
+   * @param random random source belonging to the game
+   * @return packed move as made by Move.of, or Move.NONE to let the time for the piece run out
+   */
+  int choose(GameEngine engine, SplittableRandom random);
+}
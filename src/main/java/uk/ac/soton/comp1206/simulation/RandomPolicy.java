@@ -0,0 +1,43 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.BitGrid;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Move;
+
+/**
+ * Plays a move chosen uniformly at random from every legal placement of the current or following piece in any
+ * rotation.
+ */
+public class RandomPolicy implements PlacementPolicy {
+
+  /**
+   * Choose a random legal move by reservoir sampling, so the placements are never collected.
+   *
+   * @param engine the game being played
+   * @param random random source belonging to the game
+   * @return packed move, or Move.NONE if neither piece fits anywhere
+   */
+  @Override
+  public int choose(GameEngine engine, SplittableRandom random) {
+    BitGrid grid = engine.getGrid();
+    int chosen = Move.NONE;
+    int seen = 0;
+    for (var swap = 0; swap < 2; swap++) {
+      GamePiece piece = swap == 0 ? engine.getCurrentPiece() : engine.getFollowingPiece();
+      for (var rotations = 0; rotations < GamePiece.ROTATIONS; rotations++) {
+        long[] legal = grid.getLegalPlacements(piece.rotated(rotations));
+        for (var word = 0; word < legal.length; word++) {
+          for (long bits = legal[word]; bits != 0; bits &= bits - 1) {
+            if (random.nextInt(++seen) == 0) {
+              int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+              chosen = Move.of(index % grid.getCols(), index / grid.getCols(), rotations, swap == 1);
+            }
+          }
+        }
+      }
+    }
+    return chosen;
+  }
+}
@@ -0,0 +1,188 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+
+/**
+ * The results of a batch of simulated games: throughput, and the distribution of scores and levels reached.
+ */
+public class SimulationReport {
+
+  /**
+   * The final score of every game, sorted.
+   */
+  private final int[] scores;
+
+  /**
+   * The final level of every game, sorted.
+   */
+  private final int[] levels;
+
+  /**
+   * The total number of pieces played across all games.
+   */
+  private final long placements;
+
+  /**
+   * The wall clock time the batch took.
+   */
+  private final long elapsedNanos;
+
+  /**
+   * Create a report from the results of every game.
+   *
+   * @param scores       final score of every game
+   * @param levels       final level of every game
+   * @param placements   total number of pieces played
+   * @param elapsedNanos wall clock time the batch took
+   */
+  public SimulationReport(int[] scores, int[] levels, long placements, long elapsedNanos) {
+    this.scores = scores.clone();
+    this.levels = levels.clone();
+    Arrays.sort(this.scores);
+    Arrays.sort(this.levels);
+    this.placements = placements;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the number of games played.
+   *
+   * @return number of games
+   */
+  public int getGames() {
+    return scores.length;
+  }
+
+  /**
+   * Get the total number of pieces played.
+   *
+   * @return number of placements
+   */
+  public long getPlacements() {
+    return placements;
+  }
+
+  /**
+   * Get the number of games completed per second of wall clock time.
+   *
+   * @return games per second
+   */
+  public double getGamesPerSecond() {
+    return scores.length / (elapsedNanos / 1e9);
+  }
+
+  /**
+   * Get the number of pieces played per second of wall clock time.
+   *
+   * @return placements per second
+   */
+  public double getPlacementsPerSecond() {
+    return placements / (elapsedNanos / 1e9);
+  }
+
+  /**
+   * Get the mean final score.
+   *
+   * @return mean score
+   */
+  public double getMeanScore() {
+    return mean(scores);
+  }
+
+  /**
+   * Get the standard deviation of the final scores.
+   *
+   * @return standard deviation
+   */
+  public double getScoreDeviation() {
+    double mean = mean(scores);
+    double sum = 0;
+    for (int score : scores) {
+      sum += (score - mean) * (score - mean);
+    }
+    return scores.length == 0 ? 0 : Math.sqrt(sum / scores.length);
+  }
+
+  /**
+   * Get a percentile of the final scores.
+   *
+   * @param percentile percentile from 0 to 100
+   * @return the score at that percentile
+   */
+  public int getScorePercentile(double percentile) {
+    return percentile(scores, percentile);
+  }
+
+  /**
+   * Get the mean final level.
+   *
+   * @return mean level
+   */
+  public double getMeanLevel() {
+    return mean(levels);
+  }
+
+  /**
+   * Get a percentile of the final levels.
+   *
+   * @param percentile percentile from 0 to 100
+   * @return the level at that percentile
+   */
+  public int getLevelPercentile(double percentile) {
+    return percentile(levels, percentile);
+  }
+
+  /**
+   * Count the final scores falling into equal width buckets from 0 to the highest score.
+   *
+   * @param buckets number of buckets
+   * @return number of games in each bucket
+   */
+  public int[] getScoreHistogram(int buckets) {
+    var histogram = new int[buckets];
+    if (scores.length == 0) {
+      return histogram;
+    }
+    int max = Math.max(scores[scores.length - 1], 1);
+    for (int score : scores) {
+      histogram[Math.min((int) ((long) Math.max(score, 0) * buckets / max), buckets - 1)]++;
+    }
+    return histogram;
+  }
+
+  private static double mean(int[] values) {
+    long sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return values.length == 0 ? 0 : (double) sum / values.length;
+  }
+
+  private static int percentile(int[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+  }
+
+  /**
+   * Summarise the report over several lines.
+   *
+   * @return the summary
+   */
+  @Override
+  public String toString() {
+    var summary = new StringBuilder();
+    summary.append(String.format("%d games, %d placements in %.3f s%n", getGames(), placements, elapsedNanos / 1e9));
+    summary.append(String.format("Throughput: %.0f games/s, %.0f placements/s%n",
+        getGamesPerSecond(), getPlacementsPerSecond()));
+    summary.append(String.format("Score: mean %.1f, sd %.1f, min %d, p50 %d, p90 %d, p99 %d, max %d%n",
+        getMeanScore(), getScoreDeviation(), getScorePercentile(0), getScorePercentile(50),
+        getScorePercentile(90), getScorePercentile(99), getScorePercentile(100)));
+    summary.append(String.format("Level: mean %.2f, p50 %d, p99 %d, max %d%n",
+        getMeanLevel(), getLevelPercentile(50), getLevelPercentile(99), getLevelPercentile(100)));
+    summary.append("Score histogram: ").append(Arrays.toString(getScoreHistogram(10)));
+    return summary.toString();
+  }
+}
@@ -0,0 +1,257 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.DefaultHeuristic;
+import uk.ac.soton.comp1206.ai.Oracle;
+import uk.ac.soton.comp1206.ai.TranspositionTable;
+import uk.ac.soton.comp1206.game.BagPieceGenerator;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.PieceGenerator;
+import uk.ac.soton.comp1206.game.QueuedPieceGenerator;
+import uk.ac.soton.comp1206.game.UniformPieceGenerator;
+import uk.ac.soton.comp1206.utility.CommandLine;
+
+/**
+ * Plays a batch of complete headless games in parallel across all cores, with every move chosen by a placement policy.
+
+ * Every game has its own engine, policy and random sources, seeded from the batch seed and the number of the game, so
+ * a batch is reproducible. Results are written to a slot per game and only gathered once every game has finished.
+
+ * The only state that can be shared between threads is the lock-free transposition table a policy may use. A shared
+ * table saves searching a position again in another game, but what a search finds then depends on which game reached
+ * the position first, so a batch with a shared table is not reproducible.
+ */
+public class SimulationRunner {
+
+  private static final Logger logger = LogManager.getLogger(SimulationRunner.class);
+
+  private static final String USAGE = "SimulationRunner [--games N] [--policy random|greedy|beam|oracle]"
+      + " [--generator uniform|bag] [--size COLSxROWS] [--seed S] [--threads T] [--max-placements M]"
+      + " [--table game|shared] [--table-bits B] [--oracle FILE]";
+
+  /**
+   * Size of the board.
+   */
+  private final int cols;
+  private final int rows;
+
+  /**
+   * Number of games to play.
+   */
+  private final int games;
+
+  /**
+   * The most pieces a single game may play before it is stopped, so that a strong policy cannot play forever.
+   */
+  private final int maxPlacements;
+
+  /**
+   * Seed every game is derived from.
+   */
+  private final long seed;
+
+  /**
+   * Number of threads to play on.
+   */
+  private final int parallelism;
+
+  /**
+   * Creates a new policy for each game.
+   */
+  private final Supplier<PlacementPolicy> policies;
+
+  /**
+   * Creates the piece generator for each game from its own random stream.
+   */
+  private final Function<SplittableRandom, PieceGenerator> generators;
+
+  /**
+   * Create a new runner.
+   *
+   * @param cols          number of columns of the board
+   * @param rows          number of rows of the board
+   * @param games         number of games to play
+   * @param maxPlacements most pieces a single game may play
+   * @param seed          seed every game is derived from
+   * @param parallelism   number of threads to play on
+   * @param policies      creates a new policy for each game
+   */
+  public SimulationRunner(int cols, int rows, int games, int maxPlacements, long seed, int parallelism,
+      Supplier<PlacementPolicy> policies) {
+    this(cols, rows, games, maxPlacements, seed, parallelism, policies,
+        random -> new UniformPieceGenerator(random, QueuedPieceGenerator.DEFAULT_PREVIEW));
+  }
+
+  /**
+   * Create a new runner dealing pieces with the given kind of generator.
+   *
+   * @param cols          number of columns of the board
+   * @param rows          number of rows of the board
+   * @param games         number of games to play
+   * @param maxPlacements most pieces a single game may play
+   * @param seed          seed every game is derived from
+   * @param parallelism   number of threads to play on
+   * @param policies      creates a new policy for each game
+   * @param generators    creates the piece generator for each game from its own random stream
+   */
+  public SimulationRunner(int cols, int rows, int games, int maxPlacements, long seed, int parallelism,
+      Supplier<PlacementPolicy> policies, Function<SplittableRandom, PieceGenerator> generators) {
+    this.cols = cols;
+    this.rows = rows;
+    this.games = games;
+    this.maxPlacements = maxPlacements;
+    this.seed = seed;
+    this.parallelism = parallelism;
+    this.policies = policies;
+    this.generators = generators;
+  }
+
+  /**
+   * Play every game and report the results.
+   *
+   * @return the report
+   */
+  public SimulationReport run() {
+    var scores = new int[games];
+    var levels = new int[games];
+    var placements = new long[games];
+
+    var pool = new ForkJoinPool(parallelism);
+    long start = System.nanoTime();
+    try {
+      pool.submit(() -> IntStream.range(0, games).parallel().forEach(game -> {
+        var engine = playGame(game, placements);
+        scores[game] = engine.getScore();
+        levels[game] = engine.getLevel();
+      })).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Simulation failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    long total = 0;
+    for (long count : placements) {
+      total += count;
+    }
+    return new SimulationReport(scores, levels, total, elapsed);
+  }
+
+  /**
+   * Play a single game to the end.
+   *
+   * @param game       number of the game in the batch
+   * @param placements slot per game to record the number of pieces played in
+   * @return the engine of the finished game
+   */
+  private GameEngine playGame(int game, long[] placements) {
+    //Derive independent random sources for this game alone
+    var random = new SplittableRandom(seed ^ (game * 0x9E3779B97F4A7C15L));
+    var engine = new GameEngine(cols, rows, generators.apply(random.split()));
+    var policy = policies.get();
+
+    engine.start();
+    var played = 0;
+    while (!engine.isGameOver() && played < maxPlacements) {
+      if (engine.play(policy.choose(engine, random))) {
+        played++;
+      } else {
+        engine.timeout();
+      }
+    }
+    placements[game] = played;
+    return engine;
+  }
+
+  /**
+   * Run a batch from the command line.
+
+   * Options: --games N, --policy random|greedy|beam|oracle, --generator uniform|bag, --size COLSxROWS, --seed S,
+   * --threads T, --max-placements M, --table game|shared, --table-bits B, --oracle FILE. The beam policy of each game
+   * has a transposition table of 2^B entries of its own, 2^16 unless given, so the batch is reproducible. With --table
+   * shared, every game shares one table, 2^20 entries unless given, which is faster but not reproducible. The oracle
+   * policy only plays 5x5 boards, using a file built by OracleBuilder.
+   *
+   * @param args commandline arguments
+   * @throws IOException if the oracle file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    int games = 10000;
+    String policy = "greedy";
+    String generator = "uniform";
+    int cols = 5;
+    int rows = 5;
+    long seed = System.nanoTime();
+    int threads = Runtime.getRuntime().availableProcessors();
+    int maxPlacements = 10000;
+    String tables = "game";
+    int tableBits = -1;
+    var oracleFile = Path.of("oracle.bin");
+
+    var arguments = new CommandLine(args, USAGE);
+    while (arguments.hasNext()) {
+      switch (arguments.next()) {
+        case "--games" -> games = Integer.parseInt(arguments.value());
+        case "--policy" -> policy = arguments.value();
+        case "--generator" -> generator = arguments.value();
+        case "--size" -> {
+          var size = arguments.value().split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "--seed" -> seed = Long.parseLong(arguments.value());
+        case "--threads" -> threads = Integer.parseInt(arguments.value());
+        case "--max-placements" -> maxPlacements = Integer.parseInt(arguments.value());
+        case "--table" -> tables = arguments.value();
+        case "--table-bits" -> tableBits = Integer.parseInt(arguments.value());
+        case "--oracle" -> oracleFile = Path.of(arguments.value());
+        default -> throw arguments.unknown();
+      }
+    }
+
+    var shared = switch (tables) {
+      case "game" -> false;
+      case "shared" -> true;
+      default -> throw new IllegalArgumentException("Unknown table: " + tables);
+    };
+    int bits = tableBits >= 0 ? tableBits : shared ? 20 : 16;
+    var table = policy.equals("beam") && shared ? new TranspositionTable(bits) : null;
+    var oracle = policy.equals("oracle") ? Oracle.open(oracleFile) : null;
+    Supplier<PlacementPolicy> policies = switch (policy) {
+      case "random" -> RandomPolicy::new;
+      case "greedy" -> GreedyPolicy::new;
+      case "beam" -> () -> new SolverPolicy(16, 2, new DefaultHeuristic(),
+          shared ? table : new TranspositionTable(bits));
+      case "oracle" -> () -> new OraclePolicy(oracle);
+      default -> throw new IllegalArgumentException("Unknown policy: " + policy);
+    };
+
+    Function<SplittableRandom, PieceGenerator> generators = switch (generator) {
+      case "uniform" -> random -> new UniformPieceGenerator(random, QueuedPieceGenerator.DEFAULT_PREVIEW);
+      case "bag" -> random -> new BagPieceGenerator(random, QueuedPieceGenerator.DEFAULT_PREVIEW);
+      default -> throw new IllegalArgumentException("Unknown generator: " + generator);
+    };
+
+    logger.info("Simulating {} games of {} with {} pieces on {}x{} with {} threads, seed {}", games, policy, generator,
+        cols, rows, threads, seed);
+    var report = new SimulationRunner(cols, rows, games, maxPlacements, seed, threads, policies, generators).run();
+    logger.info("Results:\n{}", report);
+    if (table != null) {
+      logger.info(table);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.ai.Heuristic;
+import uk.ac.soton.comp1206.ai.Solver;
+import uk.ac.soton.comp1206.ai.TranspositionTable;
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * Plays the move found by a beam search Solver. Each policy has its own solver, created for the size of the first
+ * board it sees. Policies may share a transposition table, so positions searched in one game are not searched again in
+ * another. The value kept for a position depends on which game searched it first, so policies sharing a table across
+ * threads no longer play the same moves from one run to the next; a table of its own keeps a policy reproducible.
+ */
+public class SolverPolicy implements PlacementPolicy {
+
+  private final int beamWidth;
+  private final int depth;
+  private final Heuristic heuristic;
+  private final TranspositionTable table;
+  private Solver solver;
+
+  /**
+   * Create a new policy.
+   *
+   * @param beamWidth number of positions the solver keeps at each level
+   * @param depth     number of pieces the solver looks ahead
+   * @param heuristic values each position the solver reaches
+   */
+  public SolverPolicy(int beamWidth, int depth, Heuristic heuristic) {
+    this(beamWidth, depth, heuristic, null);
+  }
+
+  /**
+   * Create a new policy keeping the results of its searches in a transposition table.
+   *
+   * @param beamWidth number of positions the solver keeps at each level
+   * @param depth     number of pieces the solver looks ahead
+   * @param heuristic values each position the solver reaches
+   * @param table     positions already searched, which may be shared with other policies, or null
+   */
+  public SolverPolicy(int beamWidth, int depth, Heuristic heuristic, TranspositionTable table) {
+    this.beamWidth = beamWidth;
+    this.depth = depth;
+    this.heuristic = heuristic;
+    this.table = table;
+  }
+
+  /**
+   * Choose the move found by the solver.
+   *
+   * @param engine the game being played
+   * @param random random source belonging to the game
+   * @return packed move, or Move.NONE if neither piece fits anywhere
+   */
+  @Override
+  public int choose(GameEngine engine, SplittableRandom random) {
+    var grid = engine.getGrid();
+    if (solver == null) {
+      solver = new Solver(grid.getCols(), grid.getRows(), beamWidth, depth, heuristic, table);
+    }
+    return solver.bestMove(grid, engine.getCurrentPiece(), engine.getFollowingPiece());
+  }
+}
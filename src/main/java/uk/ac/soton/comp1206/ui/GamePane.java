@@ -1,11 +1,15 @@
 package uk.ac.soton.comp1206.ui;
 
 import javafx.geometry.Pos;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.scene.transform.Scale;
 import javafx.scene.transform.Translate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.PerformanceHud;
+import uk.ac.soton.comp1206.game.Game;
 
 /**
  * The Game Pane is a special pane which will scale anything inside it to the screen and maintain the aspect ratio.
@@ -28,6 +32,17 @@ public class GamePane extends StackPane {
     private double scalar = 1;
     private final boolean autoScale = true;
 
+    /**
+     * Whether the performance HUD is shown. It stays shown from one scene to the next until it is toggled off.
+     */
+    private static boolean hudShown = false;
+
+    /**
+     * The performance HUD, made the first time it is shown.
+     */
+    private PerformanceHud hud;
+    private Game game;
+
     /**
      * Create a new scalable GamePane with the given drawing width and height.
      * @param width width
@@ -40,6 +55,57 @@ public class GamePane extends StackPane {
 
         getStyleClass().add("gamepane");
         setAlignment(Pos.TOP_LEFT);
+
+        //F3 toggles the performance HUD, whatever has the focus
+        addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.F3) {
+                hudShown = !hudShown;
+                updateHud();
+                event.consume();
+            }
+        });
+
+        //The scene is made once everything else is in the pane, so the HUD goes on top. It only runs while the scene is
+        //in the window, as the timers of a scene carry on after the window moves to the next one
+        sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                newScene.windowProperty().addListener((windowObservable, oldWindow, newWindow) -> updateHud());
+            }
+            updateHud();
+        });
+    }
+
+    /**
+     * Show the time taken by the actions of a game on the performance HUD.
+     * @param game game
+     */
+    public void setGame(Game game) {
+        this.game = game;
+        if (hud != null) {
+            hud.setGame(game);
+        }
+    }
+
+    /**
+     * Show or hide the performance HUD to match whether it should be shown. A hidden HUD is taken out of the pane
+     * entirely, so it costs nothing.
+     */
+    private void updateHud() {
+        var scene = getScene();
+        if (hudShown && scene != null && scene.getWindow() != null) {
+            if (hud == null) {
+                hud = new PerformanceHud();
+                hud.setGame(game);
+            }
+            if (!getChildren().contains(hud)) {
+                getChildren().add(hud);
+                hud.start(scene);
+                logger.info("Showing performance HUD");
+            }
+        } else if (hud != null && getChildren().remove(hud)) {
+            hud.stop();
+            logger.info("Hiding performance HUD");
+        }
     }
 
     /**
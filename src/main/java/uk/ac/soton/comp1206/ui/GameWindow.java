@@ -10,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.replay.ReplayReader;
 import uk.ac.soton.comp1206.scene.InstructionScene;
 import uk.ac.soton.comp1206.scene.*;
 
@@ -81,6 +82,11 @@ public class GameWindow {
      */
     public void startChallenge() { loadScene(new ChallengeScene(this)); }
 
+    /**
+     * Display a practice challenge, where moves can be undone and the score is not kept
+     */
+    public void startPractice() { loadScene(new ChallengeScene(this, true)); }
+
     /**
      * Display the instruction page
      */
@@ -94,6 +100,14 @@ public class GameWindow {
         loadScene(new ScoresScene(this, game));
     }
 
+    /**
+     * Display the playback of a recorded game.
+     * @param reader replay to play
+     */
+    public void startReplay(ReplayReader reader) {
+        loadScene(new ReplayScene(this, reader));
+    }
+
     /**
      * Setup the default settings for the stage itself (the window), such as the title and minimum width and height.
      */
@@ -3,6 +3,7 @@ package uk.ac.soton.comp1206.ui;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
@@ -30,7 +31,7 @@ public class SettingsDialog {
     var dialogPane = new StackPane();
     dialogPane.setPadding(new Insets(10, 10, 10, 10));
     dialogPane.setAlignment(Pos.CENTER);
-    dialog.setScene(new Scene(dialogPane, 300, 200));
+    dialog.setScene(new Scene(dialogPane, 300, 350));
     dialogPane.getStylesheets().add(SettingsDialog.class.getResource("/style/game.css").toExternalForm());
     dialogPane.getStyleClass().add("menu-background");
 
@@ -54,7 +55,26 @@ public class SettingsDialog {
     sfxSlider.valueProperty().bindBidirectional(Multimedia.getSfxVolume());
     musicSlider.valueProperty().bindBidirectional(Multimedia.getMusicVolume());
 
-    vbox.getChildren().addAll(sfxlabel, sfxSlider, musiclabel, musicSlider);
+    var boardSizeLabel = new Text();
+    boardSizeLabel.getStyleClass().add("heading");
+    boardSizeLabel.textProperty().bind(Config.getBoardSize().asString("BOARD SIZE %d"));
+    var boardSizeSlider = new Slider(Config.MIN_BOARD_SIZE, Config.MAX_BOARD_SIZE, Config.getBoardSize().get());
+    boardSizeSlider.setMajorTickUnit(1);
+    boardSizeSlider.setMinorTickCount(0);
+    boardSizeSlider.setSnapToTicks(true);
+    boardSizeSlider.valueProperty().addListener((observable, oldValue, newValue) ->
+        Config.getBoardSize().set(newValue.intValue()));
+
+    var recordReplays = new CheckBox("RECORD REPLAYS");
+    recordReplays.getStyleClass().add("heading");
+    recordReplays.selectedProperty().bindBidirectional(Config.getRecordReplays());
+
+    var canvasBoard = new CheckBox("SINGLE CANVAS BOARD");
+    canvasBoard.getStyleClass().add("heading");
+    canvasBoard.selectedProperty().bindBidirectional(Config.getCanvasBoard());
+
+    vbox.getChildren().addAll(sfxlabel, sfxSlider, musiclabel, musicSlider, boardSizeLabel, boardSizeSlider,
+        recordReplays, canvasBoard);
     dialog.show();
   }
 
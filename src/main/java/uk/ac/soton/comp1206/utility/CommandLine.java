@@ -0,0 +1,67 @@
+package uk.ac.soton.comp1206.utility;
+
+/**
+ * Reads the arguments of a command line tool one at a time, so every tool parses its options the same way. An option
+ * given without its value, or an option the tool does not know, fails with the usage of the tool.
+ */
+public class CommandLine {
+
+  private final String[] args;
+  private final String usage;
+
+  /**
+   * Index of the next argument to read.
+   */
+  private int next = 0;
+
+  /**
+   * Create a reader of commandline arguments.
+   *
+   * @param args  commandline arguments
+   * @param usage usage of the tool, shown when the arguments are wrong
+   */
+  public CommandLine(String[] args, String usage) {
+    this.args = args;
+    this.usage = usage;
+  }
+
+  /**
+   * Check whether there are arguments left to read.
+   *
+   * @return true if there are more arguments
+   */
+  public boolean hasNext() {
+    return next < args.length;
+  }
+
+  /**
+   * Read the next argument, an option or a name.
+   *
+   * @return the argument
+   */
+  public String next() {
+    return args[next++];
+  }
+
+  /**
+   * Read the value of the option just read.
+   *
+   * @return the value
+   * @throws IllegalArgumentException if the option was the last argument
+   */
+  public String value() {
+    if (!hasNext()) {
+      throw new IllegalArgumentException("Missing value for " + args[next - 1] + "\nUsage: " + usage);
+    }
+    return next();
+  }
+
+  /**
+   * Make the error for an option the tool does not know, the one just read.
+   *
+   * @return the error to throw
+   */
+  public IllegalArgumentException unknown() {
+    return new IllegalArgumentException("Unknown option: " + args[next - 1] + "\nUsage: " + usage);
+  }
+}
@@ -1,5 +1,9 @@
 package uk.ac.soton.comp1206.utility;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.ui.SettingsDialog;
@@ -16,13 +20,41 @@ public class Config {
 
   private static final Logger logger = LogManager.getLogger(Config.class);
 
+  /**
+   * The smallest and largest board sizes that can be chosen.
+   */
+  public static final int MIN_BOARD_SIZE = 5;
+  public static final int MAX_BOARD_SIZE = 64;
+
+  /**
+   * The size of the standard board. Only games on it go on the high score table, as lines on a bigger board clear more
+   * blocks and score more.
+   */
+  public static final int DEFAULT_BOARD_SIZE = 5;
+
+  /**
+   * Number of columns and rows on the board in the challenge.
+   */
+  private static final IntegerProperty boardSize = new SimpleIntegerProperty(DEFAULT_BOARD_SIZE);
+
+  /**
+   * Whether every challenge is recorded to a replay file.
+   */
+  private static final BooleanProperty recordReplays = new SimpleBooleanProperty(true);
+
+  /**
+   * Whether the board is always drawn on a single canvas, rather than only when it is large.
+   */
+  private static final BooleanProperty canvasBoard = new SimpleBooleanProperty(false);
+
   /**
    * saves configuration to config.txt
    */
   public static void saveConfiguration() {
     var path = Paths.get("config.txt");
     try {
-      Files.writeString(path, SettingsDialog.audioConfig());
+      Files.writeString(path, SettingsDialog.audioConfig() + "\n" + boardSize.get() + "\n"
+          + recordReplays.get() + "\n" + canvasBoard.get());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -40,6 +72,18 @@ public class Config {
       logger.info("SFX volume: " + lines.get(1));
       Multimedia.getMusicVolume().set(Double.parseDouble(lines.get(0)));
       Multimedia.getSfxVolume().set(Double.parseDouble(lines.get(1)));
+      if (lines.size() > 2) {
+        logger.info("Board size: " + lines.get(2));
+        boardSize.set(Math.min(Math.max(Integer.parseInt(lines.get(2)), MIN_BOARD_SIZE), MAX_BOARD_SIZE));
+      }
+      if (lines.size() > 3) {
+        logger.info("Record replays: " + lines.get(3));
+        recordReplays.set(Boolean.parseBoolean(lines.get(3)));
+      }
+      if (lines.size() > 4) {
+        logger.info("Canvas board: " + lines.get(4));
+        canvasBoard.set(Boolean.parseBoolean(lines.get(4)));
+      }
     } catch (NoSuchFileException e) {
       Multimedia.getMusicVolume().set(0.6);
       Multimedia.getSfxVolume().set(0.8);
@@ -47,4 +91,31 @@ public class Config {
       throw new RuntimeException(e);
     }
   }
+
+  /**
+   * Get the number of columns and rows on the board in the challenge.
+   *
+   * @return board size property
+   */
+  public static IntegerProperty getBoardSize() {
+    return boardSize;
+  }
+
+  /**
+   * Get whether every challenge is recorded to a replay file.
+   *
+   * @return record replays property
+   */
+  public static BooleanProperty getRecordReplays() {
+    return recordReplays;
+  }
+
+  /**
+   * Get whether the board is always drawn on a single canvas.
+   *
+   * @return canvas board property
+   */
+  public static BooleanProperty getCanvasBoard() {
+    return canvasBoard;
+  }
 }